@@ -0,0 +1,241 @@
+package cli;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import svn.BranchManager;
+import svn.LaunchProgressListener;
+import svn.Launcher;
+import svn.LauncherLogManager;
+import svn.MakeProgress;
+import svn.error.MakeErrorListener;
+import svn.process.JobLog;
+import svn.stats.DurationStatistics;
+import svn.stats.MakeRegression;
+import vars.properties.GlobalProperties;
+
+/**
+ * <p>The <code>BatchLauncher</code> class runs a launch from the command line, without
+ * any graphical component, so that branches can be set up and compiled by scheduled
+ * tasks on machines without a display. It is started by calling the application with
+ * the <code>--batch</code> argument, followed by the options listed by {@link #USAGE}.
+ * <p>Branches and jobs are taken from the schedule saved by the graphical application,
+ * unless said otherwise by the options. The launch itself is run by a
+ * {@link svn.Launcher Launcher}, with the very same properties.
+ * <p>Every launch event is printed on the standard output as a tab-separated line (see
+ * {@link ConsoleLaunchFeedback}). Besides those, there are:
+ * <ul>
+ * <li><b>begin</b> - number of branch folders</li>
+ * <li><b>progress</b> - branch name, setup state, make state</li>
+ * <li><b>makeprogress</b> - branch name, units compiled, units expected (0 if unknown),
+ * percentage (-1 if unknown), milliseconds left (-1 if unknown)</li>
+ * <li><b>regression</b> - branch name, milliseconds taken, usual milliseconds, old revision
+ * and new revision (both -1 if the branch was not set up to another revision)</li>
+ * <li><b>end</b> - exit status, launch identifier (see {@link svn.process.JobLog JobLog})</li>
+ * </ul>
+ * <p>The exit status is {@link #EXIT_SUCCESS} if every job ended or was up to date,
+ * {@link #EXIT_FAILURE} if any job failed, any branch folder was invalid or the launch
+ * was interrupted, and
+ * {@link #EXIT_USAGE} if the options are invalid.
+ * @author guidanoli
+ * @see svn.Launcher Launcher
+ */
+public class BatchLauncher implements LaunchProgressListener {
+
+	public static final String BATCH_ARG = "--batch";
+	public static final int EXIT_SUCCESS = 0;
+	public static final int EXIT_FAILURE = 1;
+	public static final int EXIT_USAGE = 2;
+	public static final String USAGE = String.join(System.lineSeparator(),
+			"usage: jabuti --batch [options]",
+			"  --branches a,b,...  launch the given branches only",
+			"  --all               launch every branch",
+			"  --setup             run setup jobs",
+			"  --make              run make jobs",
+			"  --force             compile even branches that are up to date",
+			"  --help              print this message",
+			"Without --branches nor --all, the saved schedule is launched, restricted",
+			"to the jobs given by --setup and --make, if any. Otherwise, the selected",
+			"branches run the jobs given by --setup and --make, or both if none.");
+	
+	private static final long FEEDBACK_TIMEOUT = 10000; // ms
+	private static final String [] STATE_NAMES = {
+			"off", "waiting", "unlocking", "running", "ended", "invalid", "failed", "uptodate" };
+	
+	private final ConsoleLaunchFeedback feedback;
+	private final String [] branchNames;
+	private final int [] setupStates;
+	private final int [] makeStates;
+	private final CountDownLatch ended = new CountDownLatch(1);
+	
+	/**
+	 * Constructs a batch launcher
+	 * @param branchNames - every branch folder name
+	 * @param out - stream events are printed to
+	 */
+	private BatchLauncher(String [] branchNames, PrintStream out) {
+		this.feedback = new ConsoleLaunchFeedback(out);
+		this.branchNames = branchNames;
+		this.setupStates = new int[branchNames.length];
+		this.makeStates = new int[branchNames.length];
+	}
+	
+	/**
+	 * <p>Runs a launch as set by the command line arguments and waits for it to end.
+	 * No AWT component is ever created, since the application is set to headless
+	 * before anything else.
+	 * @param args - command line arguments, with or without {@link #BATCH_ARG}
+	 * @return exit status
+	 */
+	public static int run(String [] args) {
+		System.setProperty("java.awt.headless", "true");
+		List<String> selected = null;
+		boolean all = false, setupFlag = false, makeFlag = false, force = false;
+		for( int i = 0 ; i < args.length ; i++ ) {
+			switch( args[i] ) {
+			case BATCH_ARG:
+				break;
+			case "--branches":
+				if( ++i == args.length ) return usage("missing branch names");
+				selected = Arrays.asList(args[i].split(","));
+				break;
+			case "--all":
+				all = true;
+				break;
+			case "--setup":
+				setupFlag = true;
+				break;
+			case "--make":
+				makeFlag = true;
+				break;
+			case "--force":
+				force = true;
+				break;
+			case "--help":
+				System.out.println(USAGE);
+				return EXIT_SUCCESS;
+			default:
+				return usage("unknown option " + args[i]);
+			}
+		}
+		if( all && selected != null ) return usage("--all and --branches are exclusive");
+		
+		BranchManager manager = BranchManager.getInstance();
+		String [] branchNames = manager.getBranchNames();
+		if( branchNames == null ) {
+			System.err.println("The branches folder could not be listed. Check the 'path' property.");
+			return EXIT_FAILURE;
+		}
+		if( selected != null ) {
+			List<String> available = Arrays.asList(branchNames);
+			for( String name : selected )
+				if( !available.contains(name) ) return usage("unknown branch " + name);
+		}
+		boolean anyFlag = setupFlag || makeFlag;
+		boolean [] setup = new boolean[branchNames.length];
+		boolean [] make = new boolean[branchNames.length];
+		if( all || selected != null ) {
+			for( int i = 0 ; i < branchNames.length ; i++ ) {
+				if( !all && !selected.contains(branchNames[i]) ) continue;
+				setup[i] = !anyFlag || setupFlag;
+				make[i] = !anyFlag || makeFlag;
+			}
+		} else {
+			boolean [] savedSetup = manager.getBoolSetup();
+			boolean [] savedMake = manager.getBoolMake();
+			for( int i = 0 ; i < branchNames.length ; i++ ) {
+				setup[i] = savedSetup[i] && ( !anyFlag || setupFlag );
+				make[i] = savedMake[i] && ( !anyFlag || makeFlag );
+			}
+		}
+		
+		return new BatchLauncher(branchNames, System.out).launch(setup, make, force);
+	}
+	
+	/**
+	 * Prints an usage error
+	 * @param error - what is wrong with the arguments
+	 * @return {@link #EXIT_USAGE}
+	 */
+	private static int usage(String error) {
+		System.err.println("error: " + error);
+		System.err.println(USAGE);
+		return EXIT_USAGE;
+	}
+	
+	/**
+	 * Launches the branches and waits for the launch to end. If the application
+	 * is terminated meanwhile, the launch is interrupted.
+	 * @param setup - if each branch will do a setup job
+	 * @param make - if each branch will be compiled
+	 * @param force - if up to date branches should be compiled anyway
+	 * @return exit status
+	 */
+	private int launch(boolean [] setup, boolean [] make, boolean force) {
+		MakeErrorListener makeListener = new MakeErrorListener();
+		Launcher launcher = new Launcher(branchNames, setup, make, force, this,
+				GlobalProperties.setupErrorsProperty, makeListener, feedback);
+		Thread hook = new Thread(new Runnable() {
+			public void run() { launcher.interrupt(); }
+		});
+		Runtime.getRuntime().addShutdownHook(hook);
+		try {
+			ended.await();
+		} catch (InterruptedException e) {
+			launcher.interrupt();
+		}
+		try {
+			Runtime.getRuntime().removeShutdownHook(hook);
+		} catch (IllegalStateException e) {
+			// already shutting down
+		}
+		launcher.awaitFeedback(FEEDBACK_TIMEOUT);
+		LauncherLogManager.cleanUp(feedback);
+		JobLog.cleanUp();
+		DurationStatistics.cleanUp();
+		GlobalProperties.getInstance().flush();
+		int status = getExitStatus();
+		feedback.event("end", status, launcher.getLaunchId());
+		return status;
+	}
+	
+	/**
+	 * @return exit status according to the last state of every job. Jobs that
+	 * did not finish (i.e. the launch was interrupted) count as failures.
+	 */
+	private synchronized int getExitStatus() {
+		for( int i = 0 ; i < branchNames.length ; i++ ) {
+			for( int state : new int [] { setupStates[i], makeStates[i] } ) {
+				if( state != OFF && state != ENDED && state != UPTODATE ) return EXIT_FAILURE;
+			}
+		}
+		return EXIT_SUCCESS;
+	}
+	
+	public void launchBegan() {
+		feedback.event("begin", branchNames.length);
+	}
+
+	public synchronized void progressUpdate(int i, int setup, int make) {
+		setupStates[i] = setup;
+		makeStates[i] = make;
+		feedback.event("progress", branchNames[i], STATE_NAMES[setup], STATE_NAMES[make]);
+	}
+
+	public void makeProgressUpdate(int i, MakeProgress progress) {
+		feedback.event("makeprogress", branchNames[i], progress.getUnits(), progress.getExpectedUnits(),
+				progress.getPercent(), progress.getEtaMillis());
+	}
+
+	public void makeRegression(int i, MakeRegression regression) {
+		feedback.event("regression", branchNames[i], regression.getMillis(), regression.getBaselineMillis(),
+				regression.getOldRevision(), regression.getNewRevision());
+	}
+
+	public void launchEnded() {
+		ended.countDown();
+	}
+
+}
@@ -0,0 +1,81 @@
+package cli;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import svn.LaunchFeedback;
+import vars.properties.bool.NotificationProperty;
+
+/**
+ * <p>Prints launch feedback as machine-readable lines, one event per line,
+ * in the following tab-separated format:
+ * <p><code>time stamp, event, fields...</code>
+ * <p>Tabs, line breaks and back slashes within fields are escaped as
+ * <code>\t</code>, <code>\n</code>, <code>\r</code> and <code>\\</code>, so
+ * that every event fits in a single line, even command outputs.
+ * <p>Events:
+ * <ul>
+ * <li><b>notify</b> - notification type, message</li>
+ * <li><b>warning</b> - message</li>
+ * <li><b>error</b> - command output or exception stack trace</li>
+ * </ul>
+ * @author guidanoli
+ * @see BatchLauncher
+ */
+public class ConsoleLaunchFeedback implements LaunchFeedback {
+
+	private final PrintStream out;
+	
+	/**
+	 * Constructs a console feedback
+	 * @param out - stream events are printed to
+	 */
+	public ConsoleLaunchFeedback(PrintStream out) {
+		this.out = out;
+	}
+	
+	public void notify(NotificationProperty.Type type, String message) {
+		event("notify", type.name().toLowerCase(), message);
+	}
+
+	public void warn(String message) {
+		event("warning", message);
+	}
+
+	public void showLog(String log) {
+		event("error", log);
+	}
+
+	public void showException(Exception e) {
+		StringWriter trace = new StringWriter();
+		e.printStackTrace(new PrintWriter(trace));
+		event("error", trace.toString());
+	}
+	
+	/**
+	 * Prints an event line. Lines are never interleaved, even if
+	 * printed from different threads.
+	 * @param event - event name
+	 * @param fields - event fields
+	 */
+	public void event(String event, Object... fields) {
+		StringBuilder line = new StringBuilder();
+		line.append(System.currentTimeMillis()).append('\t').append(event);
+		for( Object field : fields ) line.append('\t').append(escape(String.valueOf(field)));
+		synchronized( out ) {
+			out.println(line);
+			out.flush();
+		}
+	}
+	
+	/**
+	 * Escapes characters that would break the line format
+	 * @param field - raw field
+	 * @return escaped field
+	 */
+	private static String escape(String field) {
+		return field.replace("\\", "\\\\").replace("\t", "\\t").replace("\r", "\\r").replace("\n", "\\n");
+	}
+	
+}
@@ -1,6 +1,9 @@
 package gui;
+import java.util.Arrays;
+
 import javax.swing.SwingUtilities;
 
+import cli.BatchLauncher;
 import gui.dialog.main.MainFrame;
 import vars.Language;
 
@@ -9,18 +12,22 @@ import vars.Language;
  * <p>This class serves as a starting point on the program call chain. 
  * It initializes the main frame component safely with the use of the
  * {@link javax.swing.SwingUtilities#invokeLater(Runnable) invokeLater} function.
+ * <p>If called with the <code>--batch</code> argument, no frame is shown at all.
+ * Instead, a launch is run from the command line by the {@link cli.BatchLauncher BatchLauncher}.
  * 
  * @author guidanoli
  * @see gui.dialog.main.MainFrame MainFrame
+ * @see cli.BatchLauncher BatchLauncher
  *
  */
 public class Jabuti {
 	
-	private static Language lang = Language.getInstance();
 	public static void main(String[] args) {
+		if( Arrays.asList(args).contains(BatchLauncher.BATCH_ARG) )
+			System.exit(BatchLauncher.run(args));
 		SwingUtilities.invokeLater(new Runnable() {
             public void run() {
-            	new MainFrame(lang.get("name"));
+            	new MainFrame(Language.getInstance().get("name"));
             }
         });
 	}
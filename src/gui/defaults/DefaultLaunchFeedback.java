@@ -0,0 +1,33 @@
+package gui.defaults;
+
+import gui.error.FatalError;
+import gui.error.LightError;
+import svn.LaunchFeedback;
+import vars.properties.bool.NotificationProperty;
+
+/**
+ * <p>Displays launch feedback through the default graphical components:
+ * notifications as {@link DefaultNotificationPopup} and errors as
+ * {@link LightError} and {@link FatalError} dialogs (that do not exit).
+ * @author guidanoli
+ *
+ */
+public class DefaultLaunchFeedback implements LaunchFeedback {
+
+	public void notify(NotificationProperty.Type type, String message) {
+		new DefaultNotificationPopup(type, message);
+	}
+
+	public void warn(String message) {
+		LightError.show(message);
+	}
+
+	public void showLog(String log) {
+		FatalError.showLog(log, null, false);
+	}
+
+	public void showException(Exception e) {
+		FatalError.show(e, null, false);
+	}
+
+}
@@ -4,69 +4,67 @@ import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BorderFactory;
 import javax.swing.JComboBox;
-import javax.swing.JEditorPane;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingWorker;
 
 import gui.defaults.DefaultPopup;
 import gui.dialog.MenuPopup;
+import gui.error.LightError;
 import svn.BranchManager;
-import svn.LauncherLogManager;
+import svn.LaunchLogQuery;
 import vars.Language;
 
 /**
  * <p>Displays the program usage history in a fancy dialog with options to query certain
- * parameters, e.g. specific branches or specific actions.
- * <p>It reads data from the Log file and outputs in a hypertext style, mainly using tables.
- * <p>If the log is too large, a scroll pane will be shown to allow the user to scroll down
- * the text.
+ * parameters, e.g. specific branches, specific actions or recent periods.
+ * <p>The entries are shown in a table, newest first (see {@link LogTableModel}), which only
+ * renders the visible rows. The entries selected by the combo boxes are queried from the log
+ * on a background thread, so that neither opening nor filtering a large log holds the dialog
+ * up. A query is never abandoned: should the combo boxes change while it runs, it is followed
+ * by a single query of their latest selection.
  * @see svn.LauncherLogManager LauncherLogManager
  * @author guidanoli
  *
  */
 public class LogPopup implements MenuPopup, ItemListener {
 
+	/* Periods, in milliseconds, as listed in the period combo */
+	private static final long [] periods = { 0, 24L * 60 * 60 * 1000, 7L * 24 * 60 * 60 * 1000, 30L * 24 * 60 * 60 * 1000 };
+
 	/* Managers */
 	private BranchManager branchManager = BranchManager.getInstance();
 	private Language lang = Language.getInstance();
-	private ArrayList<String []> data;
 	
 	/* Components */
 	private DefaultPopup dlg;
 	JPanel panel;
-	private JComboBox<String> branchCombo, actionCombo;
-	private JEditorPane jep = new JEditorPane();
+	private JComboBox<String> branchCombo, actionCombo, periodCombo;
+	private LogTableModel model = new LogTableModel();
+	private JTable table = new JTable(model);
 	
-	/* Row filter */
+	/* Combo options */
 	private String allBrances = lang.get("gui_popup_log_allbranches");
 	private String allActions = lang.get("gui_popup_log_allactions");
-	private LogRowFilter rowFilter = new LogRowFilter() {
-		public boolean filter(String[] rowData) {
-			String branch = rowData[0];
-			String action = rowData[2].toLowerCase();
-			String selectedBranch = (String) branchCombo.getSelectedItem();
-			String selectedAction = (String) actionCombo.getSelectedItem();
-			boolean branchFilter = branch.equals(selectedBranch) ||
-					selectedBranch.equals(allBrances);
-			boolean actionFilter = action.equals(selectedAction.toLowerCase()) ||
-					selectedAction.equals(allActions);
-			return branchFilter && actionFilter;
-		}
-	};
+	
+	/* Background work */
+	private SwingWorker<LogTableModel.Entries, Void> queryWorker = null;
+	private boolean queryPending = false; // the selection changed while querying
 	
 	public void open(JFrame parent) {
 		dlg = new DefaultPopup(parent,lang.get("gui_popup_log_title"));
-		data = LauncherLogManager.readLog(); // updates data
 		buildDialog();
 		dlg.pack();
 		dlg.setResizable(false);
 		dlg.setLocationRelativeTo(dlg.getOwner());
+		updateLogTable();
 		dlg.setVisible(true);
 	}
 		
@@ -83,88 +81,69 @@ public class LogPopup implements MenuPopup, ItemListener {
 		branchCombo = new JComboBox<String>(branchOptions);
 		branchCombo.addItemListener(this);
 		
-		String [] actions = { allActions, lang.get("gui_popup_log_action_setup"), lang.get("gui_popup_log_action_make") };
+		String [] actions = { allActions, lang.get("gui_popup_log_action_setup"), lang.get("gui_popup_log_action_make"),
+				lang.get("gui_popup_log_action_regression") };
 		actionCombo = new JComboBox<String>(actions);
 		actionCombo.setPreferredSize(branchCombo.getPreferredSize());
 		actionCombo.addItemListener(this);
 		
-	    jep.setContentType("text/html");
-	    jep.setText(getTableHTML(new LogRowFilter() {
-	    	public boolean filter(String[] r) { return true; }
-    	})); // accepts everything
-	    jep.setEditable(false);
-	    jep.setOpaque(false);
-	    JScrollPane scrollPane = new JScrollPane(jep);
-	    scrollPane.setPreferredSize(new Dimension(500,300));
+		String [] periodOptions = { lang.get("gui_popup_log_period_all"), lang.get("gui_popup_log_period_day"),
+				lang.get("gui_popup_log_period_week"), lang.get("gui_popup_log_period_month") };
+		periodCombo = new JComboBox<String>(periodOptions);
+		periodCombo.addItemListener(this);
+		
+		table.setFillsViewportHeight(true);
+		table.getColumnModel().getColumn(LogTableModel.DESCRIPTION).setPreferredWidth(250);
+		JScrollPane scrollPane = new JScrollPane(table);
+		scrollPane.setPreferredSize(new Dimension(500,300));
 	    
 		panel.add(branchCombo, BorderLayout.LINE_START);
+		panel.add(periodCombo, BorderLayout.CENTER);
 		panel.add(actionCombo, BorderLayout.LINE_END);
 		panel.add(scrollPane, BorderLayout.PAGE_END);
 		
 		dlg.getContentPane().add(panel);
 	}
 	
-	private String getTableHTML(LogRowFilter rowFilter) {
-		if(data==null) return "";
-		Iterator<String []> iterator = data.iterator();
-		StringBuilder sb = new StringBuilder();
-		String [] headers = { 	lang.get("gui_popup_log_col_date") ,
-								lang.get("gui_popup_log_col_branch"),
-								lang.get("gui_popup_log_col_desc") };
-		sb.append("<table width=\"100%\"><tr>");
-		for( String header : headers ) {
-			sb.append(String.format("<th>%s</th>", header));	
-		}
-		sb.append("</tr>");
-		while(iterator.hasNext()) {
-			String [] registry = iterator.next();
-			if( !rowFilter.filter(registry) ) continue;
-			sb.append("<tr>");
-			sb.append(getRowHTML(registry));
-			sb.append("</tr>");
-		}
-		sb.append("</table>");
-		return sb.toString();
-	}
-	
-	private String getRowHTML(String [] data) {
-		StringBuilder sb = new StringBuilder();
-		long date = Long.parseLong(data[1]);
-		String dateStr = branchManager.getDateString(date);
-		sb.append("<td>"+dateStr+"</td>"); // date
-		sb.append("<td>"+data[0]+"</td>"); // branch
-		String actionStr = "";
-		switch(data[2]) {
-		case "setup":
-			int diff = Integer.parseInt(data[4]) - Integer.parseInt(data[3]);
-			actionStr = lang.format("gui_popup_log_desc_setup", data[3], data[4], diff);
-			break;
-		case "make":
-			int seconds = Integer.parseInt(data[3]) / 1000;
-			int minutes = seconds / 60;
-			int hours = minutes / 60;
-			minutes %= 60;
-			seconds %= 60;
-			if( hours == 0 )
-				actionStr = lang.format("gui_popup_log_desc_make_ms", minutes, seconds);
-			else
-				actionStr = lang.format("gui_popup_log_desc_make_hms", hours, minutes, seconds);
-			break;
-		}
-		sb.append("<td>"+actionStr+"</td>"); // date
-		return sb.toString();
-	}
-
-	private void updateLogTable( LogRowFilter filter )
+	/**
+	 * Queries the entries selected by the combo boxes on a background thread, and then
+	 * shows them. If a query is running already, the new one waits for it to end.
+	 */
+	private void updateLogTable()
 	{
-		jep.setText(getTableHTML(filter));
-		panel.repaint();
+		if( queryWorker != null ) {
+			queryPending = true;
+			return;
+		}
+		final LaunchLogQuery query = new LaunchLogQuery()
+				.branch(branchCombo.getSelectedIndex() > 0 ? (String) branchCombo.getSelectedItem() : null)
+				.action(actionCombo.getSelectedIndex()); // 0 for all, as listed in BinaryLaunchLog
+		if( periodCombo.getSelectedIndex() > 0 )
+			query.since(System.currentTimeMillis() - periods[periodCombo.getSelectedIndex()]);
+		queryWorker = new SwingWorker<LogTableModel.Entries, Void>() {
+			protected LogTableModel.Entries doInBackground() throws IOException {
+				return LogTableModel.Entries.load(query);
+			}
+			protected void done() {
+				queryWorker = null;
+				if( queryPending ) { // superseded by the latest selection
+					queryPending = false;
+					updateLogTable();
+					return;
+				}
+				try {
+					model.setEntries(get());
+				} catch (InterruptedException | ExecutionException e) {
+					LightError.show(e);
+				}
+			}
+		};
+		queryWorker.execute();
 	}
 	
 	public void itemStateChanged(ItemEvent ie) {
-		updateLogTable(rowFilter);
+		if( ie.getStateChange() != ItemEvent.SELECTED ) return; // deselection comes along
+		updateLogTable();
 	}
 	
-	
-	
 }
@@ -0,0 +1,157 @@
+package gui.dialog.log;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.swing.table.AbstractTableModel;
+
+import svn.BinaryLaunchLog;
+import svn.BranchManager;
+import svn.LaunchLogQuery;
+import svn.LauncherLogManager;
+import vars.Language;
+
+/**
+ * <p>Table model of the log dialog, newest entries first. Entries are kept in primitive
+ * arrays (see {@link Entries}), loaded off the event dispatch thread, and cells are only
+ * formatted when the table asks for them, that is, for the visible rows.
+ * <p>Entries are selected by the log itself (see {@link LaunchLogQuery}), which skips
+ * whatever is out of the period and stops at {@link #MAX_ENTRIES}, so that only the
+ * entries shown are ever loaded.
+ * @author guidanoli
+ * @see LogPopup
+ */
+public class LogTableModel extends AbstractTableModel {
+
+	private static final long serialVersionUID = 6210837140129648216L;
+	
+	protected static final int DATE = 0;
+	protected static final int BRANCH = 1;
+	protected static final int DESCRIPTION = 2;
+	
+	/** Maximum number of entries shown at once, the most recent ones */
+	public static final int MAX_ENTRIES = 10000;
+	private static final int INITIAL_CAPACITY = 256;
+	
+	/**
+	 * Log entries selected by a query, newest first, which are not changed once loaded
+	 */
+	public static class Entries {
+		private final BinaryLaunchLog log;
+		private int size = 0;
+		private int [] branchIds = new int[INITIAL_CAPACITY];
+		private long [] timestamps = new long[INITIAL_CAPACITY];
+		private int [] actions = new int[INITIAL_CAPACITY];
+		private long [] args0 = new long[INITIAL_CAPACITY], args1 = new long[INITIAL_CAPACITY],
+				args2 = new long[INITIAL_CAPACITY];
+		
+		private Entries(BinaryLaunchLog log, LaunchLogQuery query) throws IOException {
+			this.log = log;
+			log.query(query.newestFirst().limit(MAX_ENTRIES), new BinaryLaunchLog.RecordVisitor() {
+				public void visit(int branchId, long timestamp, int action, long arg0, long arg1, long arg2) {
+					if( size == timestamps.length ) grow();
+					branchIds[size] = branchId;
+					timestamps[size] = timestamp;
+					actions[size] = action;
+					args0[size] = arg0;
+					args1[size] = arg1;
+					args2[size] = arg2;
+					size++;
+				}
+			});
+		}
+		
+		/**
+		 * Loads the most recent entries selected by a query, up to {@link LogTableModel#MAX_ENTRIES}.
+		 * Should not be called on the event dispatch thread.
+		 * @param query - which entries to load, by branch, action and time range
+		 * @return entries
+		 * @throws IOException if the log could not be opened or read
+		 */
+		public static Entries load(LaunchLogQuery query) throws IOException {
+			return new Entries(LauncherLogManager.openLog(), query);
+		}
+		
+		private void grow() {
+			int capacity = Math.min(MAX_ENTRIES, timestamps.length * 2);
+			branchIds = Arrays.copyOf(branchIds, capacity);
+			timestamps = Arrays.copyOf(timestamps, capacity);
+			actions = Arrays.copyOf(actions, capacity);
+			args0 = Arrays.copyOf(args0, capacity);
+			args1 = Arrays.copyOf(args1, capacity);
+			args2 = Arrays.copyOf(args2, capacity);
+		}
+		
+		/**
+		 * @return number of entries
+		 */
+		public int size() { return size; }
+	}
+	
+	/* Managers */
+	private BranchManager branchManager = BranchManager.getInstance();
+	private Language lang = Language.getInstance();
+	
+	private String [] columnNames = { 	lang.get("gui_popup_log_col_date") ,
+										lang.get("gui_popup_log_col_branch"),
+										lang.get("gui_popup_log_col_desc") };
+	private Entries entries = null;
+	
+	/**
+	 * Sets the entries shown. Should be called on the event dispatch thread.
+	 * @param entries - entries loaded by {@link Entries#load(LaunchLogQuery)}
+	 */
+	public void setEntries(Entries entries) {
+		this.entries = entries;
+		fireTableDataChanged();
+	}
+	
+	/**
+	 * @return entries shown or <code>null</code> if not loaded yet
+	 */
+	public Entries getEntries() { return entries; }
+	
+	public String getColumnName(int col) { return columnNames[col]; }
+	public int getColumnCount() { return columnNames.length; }
+	public int getRowCount() { return entries == null ? 0 : entries.size; }
+	
+	public Object getValueAt(int rowIndex, int columnIndex) {
+		switch(columnIndex) {
+		case DATE:
+			return branchManager.getDateString(entries.timestamps[rowIndex]);
+		case BRANCH:
+			String branch = entries.log.getBranchName(entries.branchIds[rowIndex]);
+			return branch == null ? "" : branch;
+		case DESCRIPTION:
+			return getDescription(entries.actions[rowIndex], entries.args0[rowIndex], entries.args1[rowIndex],
+					entries.args2[rowIndex]);
+		default:
+			return null;
+		}
+	}
+	
+	private String getDescription(int action, long arg0, long arg1, long arg2) {
+		switch(action) {
+		case BinaryLaunchLog.SETUP:
+			long diff = arg1 - arg0;
+			return lang.format("gui_popup_log_desc_setup", arg0, arg1, diff);
+		case BinaryLaunchLog.MAKE:
+			long seconds = arg0 / 1000;
+			long minutes = seconds / 60;
+			long hours = minutes / 60;
+			minutes %= 60;
+			seconds %= 60;
+			if( hours == 0 )
+				return lang.format("gui_popup_log_desc_make_ms", minutes, seconds);
+			else
+				return lang.format("gui_popup_log_desc_make_hms", hours, minutes, seconds);
+		case BinaryLaunchLog.REGRESSION:
+			if( arg1 == BinaryLaunchLog.NONE || arg2 == BinaryLaunchLog.NONE )
+				return lang.format("gui_popup_log_desc_regression_local", arg0);
+			return lang.format("gui_popup_log_desc_regression", arg0, arg1, arg2);
+		default:
+			return "";
+		}
+	}
+	
+}
@@ -9,6 +9,9 @@ import javax.swing.table.*;
 
 import gui.error.FatalError;
 import svn.BranchManager;
+import svn.LaunchProgressListener;
+import svn.MakeProgress;
+import svn.stats.MakeRegression;
 import vars.Language;
 import vars.LocalResources;
 
@@ -48,6 +51,8 @@ public class BranchTableModel extends AbstractTableModel {
 	// Setup and Make fields when status = STATUS_LAUNCH
 	protected int[] setupStatus;
 	protected int[] makeStatus;
+	protected MakeProgress[] makeProgress;
+	protected MakeRegression[] makeRegressions;
 	
 	/* Launch Progress Icons */
 	protected Icon[] icons;
@@ -59,6 +64,7 @@ public class BranchTableModel extends AbstractTableModel {
 			LocalResources.success ,
 			LocalResources.warning ,
 			LocalResources.error ,
+			LocalResources.minus ,
 	};
 	
 	/* Meta fields */
@@ -118,7 +124,11 @@ public class BranchTableModel extends AbstractTableModel {
 		if(setup) setupToggle = manager.getBoolSetup();
 		if(make) makeToggle = manager.getBoolMake();
 		if(setup_s) setupStatus = manager.getStatusSetup();
-		if(make_s) makeStatus = manager.getStatusMake();
+		if(make_s) {
+			makeStatus = manager.getStatusMake();
+			makeProgress = new MakeProgress[makeStatus.length];
+			makeRegressions = new MakeRegression[makeStatus.length];
+		}
 	}
 	
 	/**
@@ -147,6 +157,41 @@ public class BranchTableModel extends AbstractTableModel {
 		return status;
 	}
 	
+	/**
+	 * Updates the progress of a running compilation job
+	 * @param rowIndex - branch row
+	 * @param progress - estimated progress
+	 */
+	public void setMakeProgress(int rowIndex, MakeProgress progress) {
+		if( makeStatus[rowIndex] == LaunchProgressListener.RUNNING ) makeProgress[rowIndex] = progress;
+	}
+	
+	/**
+	 * @param rowIndex - branch row
+	 * @return progress of the running compilation job or <code>null</code> if there is none
+	 */
+	public MakeProgress getMakeProgress(int rowIndex) {
+		if( status != STATUS_LAUNCH ) return null;
+		return makeProgress[rowIndex];
+	}
+	
+	/**
+	 * @param rowIndex - branch row
+	 * @param regression - make regression of the compilation job that has just ended
+	 */
+	public void setMakeRegression(int rowIndex, MakeRegression regression) {
+		makeRegressions[rowIndex] = regression;
+	}
+	
+	/**
+	 * @param rowIndex - branch row
+	 * @return make regression of the last compilation job of the launch or <code>null</code> if there is none
+	 */
+	public MakeRegression getMakeRegression(int rowIndex) {
+		if( status != STATUS_LAUNCH ) return null;
+		return makeRegressions[rowIndex];
+	}
+	
 	/* Overwritten methods */
 	
 	public String getColumnName(int col) { return columnNames[col]; }
@@ -220,6 +265,7 @@ public class BranchTableModel extends AbstractTableModel {
 			else if( status == STATUS_LAUNCH )
 			{
 				makeStatus[rowIndex] = (int) aValue;
+				if( makeStatus[rowIndex] != LaunchProgressListener.RUNNING ) makeProgress[rowIndex] = null;
 			}
 			break;
 		default:
@@ -4,7 +4,10 @@ import javax.swing.JMenuBar;
 
 import gui.defaults.DefaultClosingCallback;
 import gui.defaults.DefaultFrame;
+import gui.defaults.DefaultLaunchFeedback;
 import svn.LauncherLogManager;
+import svn.process.JobLog;
+import svn.stats.DurationStatistics;
 import vars.properties.GlobalProperties;
 
 /**
@@ -57,7 +60,9 @@ public class MainFrame extends JFrame {
 				case CLOSE:
 					/* Routines called before closing */
 					gp.cleanUp();
-					LauncherLogManager.cleanUp();
+					LauncherLogManager.cleanUp(new DefaultLaunchFeedback());
+					JobLog.cleanUp();
+					DurationStatistics.cleanUp();
 					/* Then, exit */
 					System.exit(0);
 					break;
@@ -13,8 +13,10 @@ import gui.defaults.DefaultFrame;
 import svn.BranchManager;
 import svn.LaunchProgressListener;
 import svn.Launcher;
+import svn.MakeProgress;
 import svn.error.MakeErrorListener;
 import svn.error.SetupErrorListener;
+import svn.stats.MakeRegression;
 import vars.Language;
 import vars.properties.GlobalProperties;
 
@@ -81,6 +83,8 @@ public class MainPanel extends JPanel implements ActionListener, LaunchProgressL
 		DefaultTableCellRenderer centerRenderer = new DefaultTableCellRenderer();
 		centerRenderer.setHorizontalAlignment( JLabel.CENTER );
 		table.setDefaultRenderer(String.class, centerRenderer);
+		// Shows the progress of running compilation jobs next to their icons
+		table.setDefaultRenderer(Icon.class, new MakeProgressRenderer(tablemodel));
 		scrollingBox.setViewportView(table);
 		scrollingBox.setPreferredSize(new Dimension(600,300));
 		add(scrollingBox);
@@ -164,6 +168,24 @@ public class MainPanel extends JPanel implements ActionListener, LaunchProgressL
 		System.out.printf("[%s]%s%s\n",branchManager.getBranchNames()[i],idtos(setup,'s'),idtos(make,'m'));
 	}
 	
+	public void makeProgressUpdate(final int i, final MakeProgress progress) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				tablemodel.setMakeProgress(i, progress);
+				tablemodel.fireTableCellUpdated(i, BranchTableModel.MAKE);
+			}
+		});
+	}
+	
+	public void makeRegression(final int i, final MakeRegression regression) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				tablemodel.setMakeRegression(i, regression);
+				tablemodel.fireTableCellUpdated(i, BranchTableModel.MAKE);
+			}
+		});
+	}
+	
 	private String idtos(int i, char c) {
 		switch(i) {
 		case LaunchProgressListener.OFF:
@@ -176,6 +198,8 @@ public class MainPanel extends JPanel implements ActionListener, LaunchProgressL
 			return " e";
 		case LaunchProgressListener.FAILED:
 			return " f";
+		case LaunchProgressListener.UPTODATE:
+			return " u";
 		default:
 			return "";
 		}
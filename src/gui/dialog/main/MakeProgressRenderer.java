@@ -0,0 +1,71 @@
+package gui.dialog.main;
+
+import java.awt.Component;
+
+import javax.swing.Icon;
+import javax.swing.JLabel;
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+
+import svn.MakeProgress;
+import svn.stats.MakeRegression;
+import vars.Language;
+
+/**
+ * <p>Renders the launch progress icons of the branch table. Running compilation jobs
+ * have their estimated progress shown next to their icon: the percentage complete and
+ * the time left, if a previous compilation is known, or else, the units compiled so far.
+ * Ended compilation jobs flagged as regressions have how much longer they took shown instead.
+ * @author guidanoli
+ * @see BranchTableModel#getMakeProgress(int)
+ */
+public class MakeProgressRenderer extends DefaultTableCellRenderer {
+
+	private static final long serialVersionUID = 2093165807134418052L;
+	
+	private Language lang = Language.getInstance();
+	private BranchTableModel model;
+	
+	public MakeProgressRenderer(BranchTableModel model) {
+		this.model = model;
+		setHorizontalAlignment(JLabel.CENTER);
+	}
+	
+	public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+			boolean hasFocus, int row, int column) {
+		super.getTableCellRendererComponent(table, null, isSelected, hasFocus, row, column);
+		setIcon(value instanceof Icon ? (Icon) value : null);
+		MakeProgress progress = null;
+		MakeRegression regression = null;
+		if( table.convertColumnIndexToModel(column) == BranchTableModel.MAKE ) {
+			progress = model.getMakeProgress(table.convertRowIndexToModel(row));
+			regression = model.getMakeRegression(table.convertRowIndexToModel(row));
+		}
+		if( progress != null ) setText(format(progress));
+		else if( regression != null ) setText(lang.format("gui_branchtable_makeregression", regression.getPercent()));
+		else setText("");
+		setToolTipText(regression == null ? null : format(regression));
+		return this;
+	}
+	
+	private String format(MakeRegression regression) {
+		String range = regression.hasRevisionRange() ?
+				lang.format("gui_notification_launcher_make_regression_range", regression.getOldRevision(), regression.getNewRevision()) :
+				lang.get("gui_notification_launcher_make_regression_local");
+		return lang.format("gui_branchtable_makeregression_tooltip", regression.getPercent(),
+				formatMillis(regression.getMillis()), formatMillis(regression.getBaselineMillis()), range);
+	}
+	
+	private static String formatMillis(long millis) {
+		return String.format("%d:%02d", millis / 60000, millis / 1000 % 60);
+	}
+	
+	private String format(MakeProgress progress) {
+		if( progress.getPercent() < 0 )
+			return lang.format("gui_branchtable_makeprogress_units", progress.getUnits());
+		long eta = progress.getEtaMillis();
+		String etaStr = eta < 0 ? "?" : String.format("%d:%02d", eta / 60000, eta / 1000 % 60);
+		return lang.format("gui_branchtable_makeprogress", progress.getPercent(), etaStr);
+	}
+	
+}
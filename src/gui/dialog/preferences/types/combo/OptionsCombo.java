@@ -0,0 +1,43 @@
+package gui.dialog.preferences.types.combo;
+
+import vars.Language;
+
+/**
+ * <p>Combo box listener for properties whose value is one of a fixed set of
+ * option labels. The description of each option is looked up in the current
+ * language by the key <code>gui_popup_preferences_propoption_&lt;key&gt;_&lt;option&gt;</code>.
+ *
+ * @author guidanoli
+ *
+ */
+public class OptionsCombo implements ComboPreferenceTypeListener {
+
+	private String key;
+	private String [] options;
+	protected String [] optionsTips = null;
+
+	/**
+	 * @param key - property key
+	 * @param options - option labels, as set to the property
+	 */
+	public OptionsCombo(String key, String... options) {
+		this.key = key;
+		this.options = options;
+	}
+
+	public String[] getOptionToolTips(Language lang) {
+		if( optionsTips == null ) {
+			optionsTips = new String[options.length];
+			for(int i = 0 ; i < options.length; i++)
+				optionsTips[i] = lang.get(String.format("gui_popup_preferences_propoption_%s_%s", key, options[i]));
+		}
+		return optionsTips;
+	}
+
+	public String[] getOptionLabels() { return options; }
+
+	public String formatLabel(String option, String tooltip) {
+		return tooltip == null ? option : tooltip;
+	}
+
+}
@@ -1,6 +1,7 @@
 package gui.error;
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
@@ -25,11 +26,23 @@ public class FatalError {
 	protected final static boolean DEFAULT_EXIT = true;
 	
 	public static void show (String msg, Component parent, boolean exit) {
+		if( GraphicsEnvironment.isHeadless() ) {
+			System.err.printf("%s: %s\n", ERROR_MSG_TITLE, msg);
+			if( exit ) System.exit(1);
+			return;
+		}
 		JOptionPane.showMessageDialog(parent, msg, ERROR_MSG_TITLE, JOptionPane.ERROR_MESSAGE);
 		if( exit ) System.exit(0);
 	}
 	
 	public static void showLog (String msg, Component parent, boolean exit) {
+		if( GraphicsEnvironment.isHeadless() ) {
+			System.err.printf("%s:\n%s\n", ERROR_LOG_TITLE, msg);
+			String helper = ErrorHelper.getHelp(msg);
+			if( !helper.equals("") ) System.err.println(helper);
+			if( exit ) System.exit(1);
+			return;
+		}
 		/* Setting up */
 		JPanel panel = new JPanel();
 		panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
@@ -56,6 +69,11 @@ public class FatalError {
 	}
 	
 	public static void show (Exception e, Component parent, boolean exit) {
+		if( GraphicsEnvironment.isHeadless() ) {
+			e.printStackTrace(System.err);
+			if( exit ) System.exit(1);
+			return;
+		}
 		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		String encoding = "UTF-8";
 	    try (PrintStream ps = new PrintStream(baos, true, encoding)) {
@@ -1,6 +1,7 @@
 package gui.error;
 
 import java.awt.Component;
+import java.awt.GraphicsEnvironment;
 
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
@@ -9,9 +10,13 @@ import vars.Language;
 
 public class LightError {
 	
-	/* Show message */
+	/* Show message (on the standard error stream if there is no display) */
 	public static void show(String msg, String title, Component parent)
 	{
+		if( GraphicsEnvironment.isHeadless() ) {
+			System.err.printf("%s: %s\n", title, msg);
+			return;
+		}
 		JOptionPane.showMessageDialog(parent, msg, title, JOptionPane.INFORMATION_MESSAGE);
 	}
 	
@@ -0,0 +1,168 @@
+package svn;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import vars.properties.bool.NotificationProperty;
+
+/**
+ * <p>The <code>AsyncLaunchFeedback</code> class decouples the threads that report launch
+ * feedback from the one that displays it. Every notification and error is published as a
+ * {@link LaunchEvent} to a queue and the publishing thread returns right away. A single
+ * consumer thread takes events from the queue, in the order they were published, and
+ * hands them to the decorated feedback.
+ * <p>This way, a job never holds its scheduling slot while a modal dialog waits for the
+ * user to click OK. Errors that happen meanwhile are shown one after the other.
+ * @author guidanoli
+ * @see svn.Launcher Launcher
+ */
+public class AsyncLaunchFeedback implements LaunchFeedback {
+
+	/**
+	 * <p>A launch feedback event, as published by a job thread.
+	 * @author guidanoli
+	 */
+	public static class LaunchEvent {
+		
+		public static enum Kind { NOTIFY, WARNING, LOG, EXCEPTION, CLOSE }
+		
+		private final Kind kind;
+		private final NotificationProperty.Type type;
+		private final String message;
+		private final Exception exception;
+		private final long timeStamp = System.currentTimeMillis();
+		
+		/**
+		 * Constructs an event
+		 * @param kind - kind of event
+		 * @param type - notification type (only for notifications)
+		 * @param message - message or command output
+		 * @param exception - exception (only for exceptions)
+		 */
+		public LaunchEvent(Kind kind, NotificationProperty.Type type, String message, Exception exception) {
+			this.kind = kind;
+			this.type = type;
+			this.message = message;
+			this.exception = exception;
+		}
+		
+		public Kind getKind() { return kind; }
+		public NotificationProperty.Type getType() { return type; }
+		public String getMessage() { return message; }
+		public Exception getException() { return exception; }
+		public long getTimeStamp() { return timeStamp; }
+		
+		/**
+		 * Delivers the event to a feedback
+		 * @param feedback - launch feedback
+		 */
+		public void deliverTo(LaunchFeedback feedback) {
+			switch(kind) {
+			case NOTIFY:
+				feedback.notify(type, message);
+				break;
+			case WARNING:
+				feedback.warn(message);
+				break;
+			case LOG:
+				feedback.showLog(message);
+				break;
+			case EXCEPTION:
+				feedback.showException(exception);
+				break;
+			default:
+				break;
+			}
+		}
+		
+	}
+	
+	private final LaunchFeedback feedback;
+	private final BlockingQueue<LaunchEvent> events = new LinkedBlockingQueue<LaunchEvent>();
+	private final Thread consumer;
+	private boolean closed = false;
+	
+	/**
+	 * Constructs an asynchronous feedback and starts its consumer thread
+	 * @param feedback - feedback to which events are delivered
+	 */
+	public AsyncLaunchFeedback(LaunchFeedback feedback) {
+		this.feedback = feedback;
+		consumer = new Thread(new Runnable() {
+			public void run() { consume(); }
+		}, "launch-feedback");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+	
+	public void notify(NotificationProperty.Type type, String message) {
+		publish(new LaunchEvent(LaunchEvent.Kind.NOTIFY, type, message, null));
+	}
+
+	public void warn(String message) {
+		publish(new LaunchEvent(LaunchEvent.Kind.WARNING, null, message, null));
+	}
+
+	public void showLog(String log) {
+		publish(new LaunchEvent(LaunchEvent.Kind.LOG, null, log, null));
+	}
+
+	public void showException(Exception e) {
+		publish(new LaunchEvent(LaunchEvent.Kind.EXCEPTION, null, null, e));
+	}
+	
+	/**
+	 * Publishes an event. Never blocks, since the queue is unbounded.
+	 * Events published after {@link #close()} are dropped.
+	 * @param event - launch event
+	 */
+	public synchronized void publish(LaunchEvent event) {
+		if( closed ) return;
+		events.offer(event);
+	}
+	
+	/**
+	 * <p>Stops accepting events. The consumer thread ends as soon as
+	 * every event published so far has been delivered.
+	 */
+	public synchronized void close() {
+		if( closed ) return;
+		closed = true;
+		events.offer(new LaunchEvent(LaunchEvent.Kind.CLOSE, null, null, null));
+	}
+	
+	/**
+	 * Waits for every event to be delivered, after {@link #close()}
+	 * @param timeout - maximum time to wait, in milliseconds
+	 * @return <code>true</code> if every event has been delivered
+	 */
+	public boolean awaitDelivery(long timeout) {
+		try {
+			consumer.join(timeout);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return !consumer.isAlive();
+	}
+	
+	/**
+	 * Delivers events until closed
+	 */
+	private void consume() {
+		while( true ) {
+			LaunchEvent event;
+			try {
+				event = events.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if( event.getKind() == LaunchEvent.Kind.CLOSE ) return;
+			try {
+				event.deliverTo(feedback);
+			} catch (RuntimeException e) {
+				e.printStackTrace(System.err); // a bad event must not stop the next ones
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,894 @@
+package svn;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import vars.LocalResources;
+
+/**
+ * <p>The <code>BinaryLaunchLog</code> stores the launch log as fixed-width binary records,
+ * appended through file channels and read through memory-mapped buffers, so that scanning
+ * the whole history takes no parsing and allocates next to nothing.
+ * <p>Records are appended to segment files of up to {@link #SEGMENT_RECORDS} records each,
+ * numbered in the order they were created. Each segment starts with a header of
+ * {@link #HEADER_SIZE} bytes:
+ * <p><code>magic (int), version (int), flags (int), reserved (int)</code>
+ * <p>followed by records of {@link #RECORD_SIZE} bytes, in big-endian order:
+ * <p><code>branch id (int), time stamp (long), action (int), 3 arguments (long)</code>
+ * <p>Missing arguments are stored as {@link #NONE}. Branch ids index the branch names
+ * listed in the dictionary file, one per line, in the order they were first logged.
+ * <p>Records are not written by the threads that append them: they are queued, and a single
+ * writer thread writes every record queued meanwhile at once, syncing them to the disk
+ * according to the {@link SyncPolicy}. Records torn by a crash are discarded when the log
+ * is opened, and overwritten by the next ones.
+ * <p>Records may be selected by branch, action and time range, newest first, up to a limit
+ * (see {@link #query(LaunchLogQuery, RecordVisitor)}), reading only the segments needed.
+ * <p>Old records are dropped a whole segment at a time (see {@link #retain(long)}): the
+ * segment is flagged as dropped in its header, which takes a single write no matter
+ * how large the log is, and its file is deleted in the background. Files that cannot be
+ * deleted yet (a mapped file cannot be deleted on every system) are retried later, or
+ * else, the next time the log is opened.
+ * <p>The log is written by a single instance of the application at a time: while it is open,
+ * the lock file is locked, and opening it from another instance fails.
+ * <p>On the first time it is opened, the former launch log (either in text or in a single
+ * binary file) is migrated, and renamed with the {@link #MIGRATED_SUFFIX} suffix. Records are
+ * migrated into a temporary folder, which is renamed into place once complete, so that an
+ * interrupted migration is started over the next time.
+ * @author guidanoli
+ * @see LauncherLogManager
+ */
+public class BinaryLaunchLog {
+
+	/**
+	 * Visits the log records, without allocating anything per record
+	 */
+	public static interface RecordVisitor {
+		/**
+		 * @param branchId - branch id (see {@link BinaryLaunchLog#getBranchName(int)})
+		 * @param timestamp - time stamp, in milliseconds since epoch
+		 * @param action - {@link BinaryLaunchLog#SETUP}, {@link BinaryLaunchLog#MAKE} or {@link BinaryLaunchLog#REGRESSION}
+		 * @param arg0 - first argument or {@link BinaryLaunchLog#NONE}
+		 * @param arg1 - second argument or {@link BinaryLaunchLog#NONE}
+		 * @param arg2 - third argument or {@link BinaryLaunchLog#NONE}
+		 */
+		public void visit(int branchId, long timestamp, int action, long arg0, long arg1, long arg2);
+	}
+	
+	/**
+	 * When the records written are forced to the disk, as set in the 'logsync' property
+	 */
+	public static enum SyncPolicy {
+		/** Left to the operating system */
+		NONE("none"),
+		/** After every batch of records */
+		BATCH("batch"),
+		/** At most once every {@link BinaryLaunchLog#SYNC_PERIOD} seconds */
+		PERIODIC("periodic");
+		
+		private final String label;
+		private SyncPolicy(String label) { this.label = label; }
+		
+		/**
+		 * @return label as set in the 'logsync' property
+		 */
+		public String getLabel() { return label; }
+		
+		/**
+		 * @return every label, in declaration order
+		 */
+		public static String [] getLabels() {
+			SyncPolicy [] values = values();
+			String [] labels = new String[values.length];
+			for( int i = 0 ; i < values.length ; i++ ) labels[i] = values[i].label;
+			return labels;
+		}
+		
+		/**
+		 * @param label - property value
+		 * @return sync policy of said label or {@link #BATCH} if unknown
+		 */
+		public static SyncPolicy fromLabel(String label) {
+			for( SyncPolicy policy : values() )
+				if( policy.label.equals(label) ) return policy;
+			return BATCH;
+		}
+	}
+	
+	/**
+	 * A record queued to be written
+	 */
+	private static class PendingRecord {
+		final int branchId;
+		final long timestamp;
+		final int action;
+		final long arg0, arg1, arg2;
+		PendingRecord(int branchId, long timestamp, int action, long... args) {
+			this.branchId = branchId;
+			this.timestamp = timestamp;
+			this.action = action;
+			this.arg0 = args.length > 0 ? args[0] : NONE;
+			this.arg1 = args.length > 1 ? args[1] : NONE;
+			this.arg2 = args.length > 2 ? args[2] : NONE;
+		}
+	}
+	
+	/**
+	 * A segment file
+	 */
+	private static class Segment {
+		final long number;
+		final Path path;
+		final FileChannel channel;
+		long count;
+		MappedByteBuffer mapped = null;
+		long mappedCount = 0;
+		long indexedCount = 0; // records accounted in the time range below
+		long minTimestamp = Long.MAX_VALUE;
+		long maxTimestamp = Long.MIN_VALUE;
+		Segment(long number, Path path, FileChannel channel, long count) {
+			this.number = number;
+			this.path = path;
+			this.channel = channel;
+			this.count = count;
+		}
+	}
+	
+	/** Setup action: old revision, new revision, time elapsed */
+	public static final int SETUP = 1;
+	/** Make action: time elapsed, units compiled */
+	public static final int MAKE = 2;
+	/** Make regression: duration in relation to the usual one (in percent), old revision, new revision */
+	public static final int REGRESSION = 3;
+	/** Value of missing arguments */
+	public static final long NONE = -1;
+	
+	public static final int HEADER_SIZE = 16;
+	public static final int RECORD_SIZE = 40;
+	/** Maximum number of records per segment */
+	public static final int SEGMENT_RECORDS = 4096;
+	/** Seconds between two attempts to delete a dropped segment file */
+	public static final int DELETE_RETRY_PERIOD = 30;
+	/** Seconds between two syncs, at most, on the {@link SyncPolicy#PERIODIC periodic} sync policy */
+	public static final int SYNC_PERIOD = 5;
+	/** Maximum number of records written at once */
+	public static final int BATCH_RECORDS = 256;
+	public static final String MIGRATED_SUFFIX = ".migrated";
+	
+	private static final int MAGIC = 0x4A424C47; // "JBLG"
+	private static final int VERSION = 2;
+	private static final int DROPPED = 1;
+	private static final String segmentExtension = ".seg";
+	private static final String [] actionNames = { null, "setup", "make", "regression" };
+	private static BinaryLaunchLog instance = null;
+	
+	private final Path folder = Paths.get(LocalResources.launchfolder);
+	private final Path migrationFolder = Paths.get(LocalResources.launchfolder + ".tmp");
+	private Path segmentFolder = folder; // where segments are created, the temporary folder while migrating
+	private final Path dictPath = Paths.get(LocalResources.launchdict);
+	private final Path lockPath = Paths.get(LocalResources.launchlock);
+	private final List<String> branchNames = new ArrayList<String>();
+	private final Map<String, Integer> branchIds = new HashMap<String, Integer>();
+	private final List<Segment> segments = new ArrayList<Segment>();
+	private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_RECORDS * RECORD_SIZE);
+	private final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE);
+	private final ConcurrentLinkedQueue<PendingRecord> queue = new ConcurrentLinkedQueue<PendingRecord>();
+	private final AtomicLong queued = new AtomicLong();
+	private final Object writtenLock = new Object();
+	private final List<Segment> unsynced = new ArrayList<Segment>();
+	private final Thread writer = new Thread("launch-log-writer") {
+		public void run() { writeLoop(); }
+	};
+	private long taken = 0; // records taken from the queue
+	private long written = 0; // guarded by writtenLock
+	private IOException writeError = null; // guarded by writtenLock
+	private volatile SyncPolicy syncPolicy = SyncPolicy.BATCH;
+	private volatile File activeFile = null; // so that it is known without waiting for the writer
+	private boolean syncScheduled = false;
+	private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "launch-log-compactor");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	private long recordCount = 0;
+	private FileChannel lockChannel = null;
+	private FileLock lock = null; // held for as long as the program runs
+	private long migratedCount = 0;
+	
+	/**
+	 * Opens the log, migrating the former one if the log folder does not exist yet.
+	 * The writer thread is only started once everything else has succeeded.
+	 */
+	private BinaryLaunchLog() throws IOException {
+		Files.createDirectories(lockPath.getParent());
+		lock();
+		try {
+			loadDictionary();
+			if( !Files.isDirectory(folder) ) migrate();
+			Files.createDirectories(folder);
+			List<Path> dropped = openSegments();
+			for( Path path : dropped ) scheduleDelete(path, 0);
+			Runtime.getRuntime().addShutdownHook(new Thread("launch-log-shutdown") {
+				public void run() {
+					try {
+						flush();
+						sync();
+					} catch (IOException e) {
+						e.printStackTrace(System.err); // too late to warn the user
+					}
+				}
+			});
+		} catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	/**
+	 * @return binary launch log singleton, opened on first call
+	 * @throws IOException if the log could not be opened
+	 */
+	public static synchronized BinaryLaunchLog getInstance() throws IOException {
+		if( instance == null ) instance = new BinaryLaunchLog();
+		return instance;
+	}
+	
+	/**
+	 * @param action - action name, as in the former text log
+	 * @return action id or 0 if unknown
+	 */
+	public static int getAction(String action) {
+		for( int i = 1 ; i < actionNames.length ; i++ )
+			if( actionNames[i].equals(action) ) return i;
+		return 0;
+	}
+	
+	/**
+	 * @param action - action id
+	 * @return action name, as in the former text log, or <code>null</code> if unknown
+	 */
+	public static String getActionName(int action) {
+		return action > 0 && action < actionNames.length ? actionNames[action] : null;
+	}
+	
+	/**
+	 * @param branchId - branch id
+	 * @return branch name or <code>null</code> if unknown
+	 */
+	public String getBranchName(int branchId) {
+		synchronized( branchIds ) {
+			return branchId >= 0 && branchId < branchNames.size() ? branchNames.get(branchId) : null;
+		}
+	}
+	
+	/**
+	 * @param branchName - branch name
+	 * @return branch id or -1 if it was never logged
+	 */
+	public int getBranchId(String branchName) {
+		synchronized( branchIds ) {
+			Integer id = branchIds.get(branchName);
+			return id == null ? -1 : id;
+		}
+	}
+	
+	/**
+	 * @return number of live records, waiting for the queued ones to be written
+	 * @throws IOException if the queued records could not be written
+	 */
+	public long getRecordCount() throws IOException {
+		flush();
+		synchronized( this ) {
+			return recordCount;
+		}
+	}
+	
+	/**
+	 * @return size of the live records, in bytes, waiting for the queued ones to be written
+	 * @throws IOException if the queued records could not be written
+	 */
+	public long getSize() throws IOException {
+		return getRecordCount() * RECORD_SIZE;
+	}
+	
+	/**
+	 * @param syncPolicy - when the records written are forced to the disk
+	 */
+	public void setSyncPolicy(SyncPolicy syncPolicy) {
+		this.syncPolicy = syncPolicy;
+	}
+	
+	/**
+	 * @return segment file records are currently appended to, or <code>null</code> if there is none
+	 */
+	public File getActiveFile() {
+		return activeFile;
+	}
+	
+	/**
+	 * @return number of records queued so far, written or not
+	 * @see #getWrittenCount()
+	 */
+	public long getQueuedCount() {
+		return queued.get();
+	}
+	
+	/**
+	 * Tells, without waiting, how many of the records queued so far have been written.
+	 * @return number of records written so far (and synced, if the sync policy is
+	 * {@link SyncPolicy#BATCH BATCH})
+	 * @see #getQueuedCount()
+	 */
+	public long getWrittenCount() {
+		synchronized( writtenLock ) {
+			return written;
+		}
+	}
+	
+	/**
+	 * Queues a record to be appended to the log, and returns without waiting for it to be written
+	 * @param branchName - branch name
+	 * @param timestamp - time stamp, in milliseconds since epoch
+	 * @param action - action id
+	 * @param args - up to 3 arguments
+	 * @throws IOException if the branch name could not be added to the dictionary,
+	 * or if previously queued records could not be written
+	 * @see #flush()
+	 */
+	public void append(String branchName, long timestamp, int action, long... args) throws IOException {
+		checkWriteError();
+		queue.add(new PendingRecord(getOrAddBranchId(branchName), timestamp, action, args));
+		queued.incrementAndGet();
+		LockSupport.unpark(writer);
+	}
+	
+	/**
+	 * Waits for every record queued so far to be written (but not necessarily synced)
+	 * @throws IOException if the queued records could not be written
+	 */
+	public void flush() throws IOException {
+		long target = queued.get();
+		synchronized( writtenLock ) {
+			boolean interrupted = false;
+			while( written < target ) {
+				try {
+					writtenLock.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if( interrupted ) Thread.currentThread().interrupt();
+		}
+		checkWriteError();
+	}
+	
+	/**
+	 * Visits every live record, oldest first, waiting for the queued ones to be written.
+	 * Records appended meanwhile may not be visited.
+	 * @param visitor - record visitor
+	 * @throws IOException if the log could not be written or mapped
+	 */
+	public void scan(RecordVisitor visitor) throws IOException {
+		flush();
+		List<Segment> live;
+		synchronized( this ) {
+			live = new ArrayList<Segment>(segments);
+		}
+		for( Segment segment : live ) {
+			MappedByteBuffer buffer;
+			long count;
+			synchronized( this ) {
+				count = segment.count;
+				if( count == 0 ) continue;
+				buffer = map(segment, count);
+			}
+			for( int i = 0 ; i < count ; i++ ) {
+				int offset = HEADER_SIZE + i * RECORD_SIZE;
+				visitor.visit(buffer.getInt(offset), buffer.getLong(offset + 4), buffer.getInt(offset + 12),
+						buffer.getLong(offset + 16), buffer.getLong(offset + 24), buffer.getLong(offset + 32));
+			}
+		}
+	}
+	
+	/**
+	 * <p>Visits the records selected by a query, in the order it asks for, waiting for the
+	 * queued ones to be written. Records appended meanwhile may not be visited.
+	 * <p>Segments whose time range does not overlap the query's are skipped without reading
+	 * their records, and the query stops as soon as its limit is reached. The time range of
+	 * each segment is indexed the first time it is queried, and only extended afterwards.
+	 * @param query - which records to visit
+	 * @param visitor - record visitor
+	 * @return number of records visited
+	 * @throws IOException if the log could not be written or mapped
+	 */
+	public int query(LaunchLogQuery query, RecordVisitor visitor) throws IOException {
+		flush();
+		int branchId = -1;
+		if( query.getBranchName() != null ) {
+			branchId = getBranchId(query.getBranchName());
+			if( branchId < 0 ) return 0; // never logged
+		}
+		List<Segment> live;
+		synchronized( this ) {
+			live = new ArrayList<Segment>(segments);
+		}
+		boolean backwards = query.isNewestFirst();
+		int limit = query.getLimit();
+		int action = query.getAction();
+		int visited = 0;
+		for( int s = 0 ; s < live.size() && visited < limit ; s++ ) {
+			Segment segment = live.get(backwards ? live.size() - 1 - s : s);
+			MappedByteBuffer buffer;
+			int count;
+			synchronized( this ) {
+				count = (int) segment.count;
+				if( count == 0 ) continue;
+				buffer = map(segment, count);
+				indexTimestamps(segment, buffer, count);
+				if( !query.overlaps(segment.minTimestamp, segment.maxTimestamp) ) continue;
+			}
+			for( int j = 0 ; j < count && visited < limit ; j++ ) {
+				int offset = HEADER_SIZE + ( backwards ? count - 1 - j : j ) * RECORD_SIZE;
+				if( branchId >= 0 && buffer.getInt(offset) != branchId ) continue;
+				if( action != 0 && buffer.getInt(offset + 12) != action ) continue;
+				long timestamp = buffer.getLong(offset + 4);
+				if( !query.isInRange(timestamp) ) continue;
+				visitor.visit(buffer.getInt(offset), timestamp, buffer.getInt(offset + 12),
+						buffer.getLong(offset + 16), buffer.getLong(offset + 24), buffer.getLong(offset + 32));
+				visited++;
+			}
+		}
+		return visited;
+	}
+	
+	/**
+	 * Maps the first records of a segment, remapping it only if it has grown since
+	 */
+	private MappedByteBuffer map(Segment segment, long count) throws IOException {
+		if( segment.mapped == null || segment.mappedCount < count ) {
+			segment.mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE + count * RECORD_SIZE);
+			segment.mappedCount = count;
+		}
+		return segment.mapped;
+	}
+	
+	/**
+	 * Extends the time range of a segment over the records not accounted yet. Time stamps are
+	 * not assumed to be in order, since the system clock may be set back.
+	 */
+	private void indexTimestamps(Segment segment, MappedByteBuffer buffer, long count) {
+		for( long i = segment.indexedCount ; i < count ; i++ ) {
+			long timestamp = buffer.getLong((int) ( HEADER_SIZE + i * RECORD_SIZE + 4 ));
+			if( timestamp < segment.minTimestamp ) segment.minTimestamp = timestamp;
+			if( timestamp > segment.maxTimestamp ) segment.maxTimestamp = timestamp;
+		}
+		segment.indexedCount = count;
+	}
+	
+	/**
+	 * Drops the oldest segments until the live records fit in a certain size.
+	 * The active segment is never dropped.
+	 * @param maxSize - maximum size of the live records, in bytes
+	 * @return <code>true</code> if any segment was dropped
+	 * @throws IOException if a segment could not be flagged as dropped
+	 */
+	public boolean retain(long maxSize) throws IOException {
+		flush();
+		boolean dropped = false;
+		synchronized( this ) {
+			while( segments.size() > 1 && recordCount * RECORD_SIZE > maxSize ) {
+				Segment segment = segments.get(0);
+				writeHeader(segment.channel, DROPPED);
+				segments.remove(0);
+				unsynced.remove(segment);
+				recordCount -= segment.count;
+				segment.mapped = null;
+				segment.channel.close();
+				scheduleDelete(segment.path, 0);
+				dropped = true;
+			}
+		}
+		return dropped;
+	}
+	
+	/* ***********
+	 * WRITER
+	 * *********** */
+	
+	/**
+	 * Writes the queued records, a batch at a time, for as long as the program runs
+	 */
+	private void writeLoop() {
+		while( true ) {
+			if( queue.isEmpty() ) {
+				LockSupport.park(this);
+				continue;
+			}
+			long count;
+			IOException error = null;
+			synchronized( this ) {
+				long before = taken;
+				try {
+					writeBatch();
+					if( syncPolicy == SyncPolicy.BATCH ) sync();
+					else if( syncPolicy == SyncPolicy.PERIODIC ) scheduleSync();
+				} catch (IOException e) {
+					error = e;
+					while( queue.poll() != null ) taken++; // no one will ever write them
+				}
+				count = taken - before;
+			}
+			synchronized( writtenLock ) {
+				written += count;
+				if( error != null && writeError == null ) writeError = error;
+				writtenLock.notifyAll();
+			}
+		}
+	}
+	
+	/**
+	 * Writes the queued records, with a single write per segment they span over
+	 */
+	private void writeBatch() throws IOException {
+		while( !queue.isEmpty() ) {
+			Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+			if( segment == null || segment.count >= SEGMENT_RECORDS )
+				segment = createSegment(segment == null ? 0 : segment.number + 1);
+			int room = (int) Math.min(BATCH_RECORDS, SEGMENT_RECORDS - segment.count);
+			int n = 0;
+			PendingRecord r;
+			batch.clear();
+			while( n < room && ( r = queue.poll() ) != null ) {
+				taken++;
+				batch.putInt(r.branchId).putLong(r.timestamp).putInt(r.action)
+					.putLong(r.arg0).putLong(r.arg1).putLong(r.arg2);
+				n++;
+			}
+			batch.flip();
+			long position = HEADER_SIZE + segment.count * RECORD_SIZE;
+			while( batch.hasRemaining() ) position += segment.channel.write(batch, position);
+			segment.count += n;
+			recordCount += n;
+			if( !unsynced.contains(segment) ) unsynced.add(segment);
+		}
+	}
+	
+	/**
+	 * Forces the records written so far to the disk
+	 * @throws IOException if they could not be forced
+	 */
+	private synchronized void sync() throws IOException {
+		for( Segment segment : unsynced ) segment.channel.force(false);
+		unsynced.clear();
+	}
+	
+	/**
+	 * Schedules a sync in {@link #SYNC_PERIOD} seconds, unless one is scheduled already
+	 */
+	private void scheduleSync() {
+		if( syncScheduled ) return;
+		syncScheduled = true;
+		compactor.schedule(new Runnable() {
+			public void run() {
+				synchronized( BinaryLaunchLog.this ) {
+					syncScheduled = false;
+					try {
+						sync();
+					} catch (IOException e) {
+						e.printStackTrace(System.err); // records are synced by the OS eventually
+					}
+				}
+			}
+		}, SYNC_PERIOD, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Throws the error of the last batch that could not be written, if not thrown yet
+	 */
+	private void checkWriteError() throws IOException {
+		IOException error;
+		synchronized( writtenLock ) {
+			error = writeError;
+			writeError = null;
+		}
+		if( error != null ) throw error;
+	}
+	
+	/* ***********
+	 * SEGMENTS
+	 * *********** */
+	
+	/**
+	 * Opens the live segments, in order
+	 * @return files of dropped segments
+	 */
+	private List<Path> openSegments() throws IOException {
+		List<Path> paths = new ArrayList<Path>();
+		try( DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*" + segmentExtension) ) {
+			for( Path path : stream ) paths.add(path);
+		}
+		Collections.sort(paths);
+		List<Path> dropped = new ArrayList<Path>();
+		for( Path path : paths ) {
+			long number;
+			try {
+				String name = path.getFileName().toString();
+				number = Long.parseLong(name.substring(0, name.length() - segmentExtension.length()));
+			} catch( NumberFormatException e ) {
+				continue; // not a segment
+			}
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			int flags = readFlags(channel);
+			if( flags < 0 || ( flags & DROPPED ) != 0 ) {
+				channel.close();
+				dropped.add(path);
+				continue;
+			}
+			long count = Math.min(SEGMENT_RECORDS, ( channel.size() - HEADER_SIZE ) / RECORD_SIZE);
+			segments.add(new Segment(number, path, channel, count));
+			recordCount += count;
+		}
+		if( !segments.isEmpty() ) {
+			Segment active = segments.get(segments.size() - 1);
+			recover(active);
+			activeFile = active.path.toFile();
+		}
+		return dropped;
+	}
+	
+	/**
+	 * Discards the records torn by a crash at the end of the active segment, that is, a
+	 * partially written record, and records that were never written at all (e.g. zeroes
+	 * left by the file system)
+	 */
+	private void recover(Segment segment) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+		while( segment.count > 0 ) {
+			buffer.clear();
+			long position = HEADER_SIZE + ( segment.count - 1 ) * RECORD_SIZE;
+			while( buffer.hasRemaining() && segment.channel.read(buffer, position + buffer.position()) >= 0 );
+			int branchId = buffer.getInt(0);
+			int action = buffer.getInt(12);
+			if( branchId >= 0 && branchId < branchNames.size() && buffer.getLong(4) > 0 && getActionName(action) != null )
+				break;
+			segment.count--;
+			recordCount--;
+		}
+		long size = HEADER_SIZE + segment.count * RECORD_SIZE;
+		if( segment.channel.size() > size ) segment.channel.truncate(size);
+	}
+	
+	/**
+	 * Closes every segment and forgets them
+	 */
+	private void closeSegments() {
+		for( Segment segment : segments ) {
+			try {
+				segment.channel.close();
+			} catch (IOException e) {
+				e.printStackTrace(System.err);
+			}
+		}
+		segments.clear();
+		unsynced.clear();
+		recordCount = 0;
+		activeFile = null;
+	}
+	
+	private Segment createSegment(long number) throws IOException {
+		Path path = segmentFolder.resolve(String.format("%012d%s", number, segmentExtension));
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		writeHeader(channel, 0);
+		Segment segment = new Segment(number, path, channel, 0);
+		segments.add(segment);
+		activeFile = path.toFile();
+		return segment;
+	}
+	
+	private void writeHeader(FileChannel channel, int flags) throws IOException {
+		header.clear();
+		header.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(0);
+		header.flip();
+		long position = 0;
+		while( header.hasRemaining() ) position += channel.write(header, position);
+	}
+	
+	/**
+	 * @return segment flags or -1 if the header is invalid
+	 */
+	private int readFlags(FileChannel channel) throws IOException {
+		header.clear();
+		while( header.hasRemaining() && channel.read(header, header.position()) >= 0 );
+		header.flip();
+		if( header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION ) return -1;
+		return header.getInt();
+	}
+	
+	/**
+	 * Deletes a dropped segment file in the background, retrying while it cannot be deleted
+	 */
+	private void scheduleDelete(final Path path, long delay) {
+		compactor.schedule(new Runnable() {
+			public void run() {
+				try {
+					Files.deleteIfExists(path);
+				} catch (IOException e) {
+					scheduleDelete(path, DELETE_RETRY_PERIOD); // probably still mapped
+				}
+			}
+		}, delay, TimeUnit.SECONDS);
+	}
+	
+	/* ***********
+	 * LOCK
+	 * *********** */
+	
+	/**
+	 * Locks the lock file, so that no other instance writes over the records of this one
+	 * @throws IOException if the lock file could not be locked, or is locked by another instance
+	 */
+	private void lock() throws IOException {
+		lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			lock = lockChannel.tryLock();
+		} catch (IOException e) {
+			lockChannel.close();
+			throw e;
+		}
+		if( lock == null ) {
+			lockChannel.close();
+			throw new IOException("Launch log in use by another instance: " + lockPath);
+		}
+	}
+	
+	/**
+	 * Closes the segments opened so far, stops the compactor and releases the lock, if the log could not be opened
+	 */
+	private void close() {
+		closeSegments();
+		compactor.shutdownNow();
+		try {
+			lockChannel.close(); // releases the lock
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+	
+	/* ***********
+	 * MIGRATION
+	 * *********** */
+	
+	/**
+	 * Writes the records of the former launch log into the migration folder, without the
+	 * writer thread, renames the migration folder as the log folder, and renames the former
+	 * log. Segments left in the migration folder by an interrupted migration are discarded.
+	 */
+	private void migrate() throws IOException {
+		Path textPath = Paths.get(LocalResources.launchlog);
+		Path dataPath = Paths.get(LocalResources.launchdata);
+		Path former = Files.exists(dataPath) ? dataPath : Files.exists(textPath) ? textPath : null;
+		if( former == null ) return;
+		if( Files.isDirectory(migrationFolder) ) {
+			try( DirectoryStream<Path> stream = Files.newDirectoryStream(migrationFolder) ) {
+				for( Path path : stream ) Files.delete(path);
+			}
+		}
+		Files.createDirectories(migrationFolder);
+		segmentFolder = migrationFolder;
+		try {
+			if( former == dataPath ) migrateData(dataPath);
+			else migrateText(textPath);
+			writeBatch();
+			sync();
+		} finally {
+			queue.clear();
+			closeSegments();
+			segmentFolder = folder;
+		}
+		Files.move(migrationFolder, folder, StandardCopyOption.ATOMIC_MOVE);
+		Files.move(former, Paths.get(former.toString() + MIGRATED_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	/**
+	 * Queues a record of the former log, writing the queued ones a batch at a time
+	 */
+	private void migrateRecord(String branchName, long timestamp, int action, long... args) throws IOException {
+		queue.add(new PendingRecord(getOrAddBranchId(branchName), timestamp, action, args));
+		if( ++migratedCount % BATCH_RECORDS == 0 ) writeBatch();
+	}
+	
+	/**
+	 * Migrates the text log, whose entries are lines of whitespace-separated fields
+	 */
+	private void migrateText(Path textPath) throws IOException {
+		try( BufferedReader reader = Files.newBufferedReader(textPath, StandardCharsets.UTF_8) ) {
+			String line;
+			long [] args = new long[3];
+			while( ( line = reader.readLine() ) != null ) {
+				String [] fields = line.trim().split("\\s+");
+				if( fields.length < 3 ) continue;
+				int action = getAction(fields[2]);
+				if( action == 0 ) continue;
+				try {
+					long timestamp = Long.parseLong(fields[1]);
+					for( int i = 0 ; i < 3 ; i++ ) args[i] = i + 3 < fields.length ? Long.parseLong(fields[i + 3]) : NONE;
+					migrateRecord(fields[0], timestamp, action, args);
+				} catch( NumberFormatException e ) {
+					continue; // bad entries are not migrated
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Migrates the single-file binary log, whose header was followed by the index of its
+	 * first live record, and whose records have the same layout as the segments'
+	 */
+	private void migrateData(Path dataPath) throws IOException {
+		List<String> names = new ArrayList<String>(branchNames);
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(dataPath));
+		if( buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC ) return;
+		long first = buffer.getLong(8);
+		for( long i = first ; HEADER_SIZE + ( i + 1 ) * RECORD_SIZE <= buffer.capacity() ; i++ ) {
+			int offset = (int) ( HEADER_SIZE + i * RECORD_SIZE );
+			int branchId = buffer.getInt(offset);
+			if( branchId < 0 || branchId >= names.size() ) continue;
+			migrateRecord(names.get(branchId), buffer.getLong(offset + 4), buffer.getInt(offset + 12),
+					buffer.getLong(offset + 16), buffer.getLong(offset + 24), buffer.getLong(offset + 32));
+		}
+	}
+	
+	/* ***********
+	 * DICTIONARY
+	 * *********** */
+	
+	private void loadDictionary() throws IOException {
+		if( !Files.exists(dictPath) ) return;
+		for( String name : Files.readAllLines(dictPath, StandardCharsets.UTF_8) ) {
+			branchIds.put(name, branchNames.size());
+			branchNames.add(name);
+		}
+	}
+	
+	private int getOrAddBranchId(String branchName) throws IOException {
+		synchronized( branchIds ) {
+			Integer id = branchIds.get(branchName);
+			if( id != null ) return id;
+			Files.write(dictPath, Collections.singletonList(branchName), StandardCharsets.UTF_8,
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			id = branchNames.size();
+			branchIds.put(branchName, id);
+			branchNames.add(branchName);
+			return id;
+		}
+	}
+	
+}
@@ -1,10 +1,12 @@
 package svn;
 import java.io.File;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 
+import gui.error.FatalError;
 import vars.Language;
 import vars.properties.GlobalProperties;
 
@@ -81,18 +83,28 @@ public class BranchManager {
 	 * current language. Each language has a said
 	 * Locale value that interprets Date format
 	 * differently and is set by the language.
+	 * <p>Dates are taken from the {@link LaunchHistory} index,
+	 * which is only reloaded if the log file has been changed.
+	 * If the log cannot be read, the user is warned and the default value is shown.
 	 * @return array of last branch setup dates
 	 * @see vars.Language Language
 	 */
 	public String[] getLastSetupDates() {
 		if( branches == null ) return null;
 		String[] v = new String[num_branches];
+		LaunchHistory history = LaunchHistory.getInstance();
+		long [] timestamps = new long[num_branches];
+		try {
+			history.revalidate();
+			for( int i = 0 ; i < v.length; i++ )
+				timestamps[i] = history.get(branches[i]).getLastActionMillis();
+		} catch (IOException e) {
+			FatalError.show(lang.get("gui_errmsg_launcher_log_readfailed"),null,false); // does not quit
+		}
 		for( int i = 0 ; i < v.length; i++ )
 		{
-			LauncherLogManager logManager = new LauncherLogManager(branches[i]);
-			long timestamp = logManager.getLastSetupMillis();
-			if( timestamp == 0 ) v[i] = lang.get("gui_branchtable_defval_lastsetup");
-			else v[i] = getDateString(timestamp);
+			if( timestamps[i] == 0 ) v[i] = lang.get("gui_branchtable_defval_lastsetup");
+			else v[i] = getDateString(timestamps[i]);
 		}
 		return v;
 	}
@@ -121,6 +133,7 @@ public class BranchManager {
 	public void setBoolSetup(String branchName, boolean value) {
 		String value_str = value ? "true" : "false";
 		gp.set(value_str,KEY_BRANCHES,branchName,INDEX_SETUP);
+		gp.save(); // written behind
 	}
 	
 	/**
@@ -148,6 +161,7 @@ public class BranchManager {
 	public void setBoolMake(String branchName, boolean value) {
 		String value_str = value ? "true" : "false";
 		gp.set(value_str,KEY_BRANCHES,branchName,INDEX_MAKE);
+		gp.save(); // written behind
 	}
 	
 	/**
@@ -180,6 +194,7 @@ public class BranchManager {
 		if( value == 0 ) return;
 		String value_str = Integer.toString(value);
 		gp.set(value_str,KEY_BRANCHES,branchName,INDEX_SETUP_STATUS);
+		gp.save(); // written behind
 	}
 
 	/**
@@ -212,6 +227,7 @@ public class BranchManager {
 		if( value == 0 ) return;
 		String value_str = Integer.toString(value);
 		gp.set(value_str,KEY_BRANCHES,branchName,INDEX_MAKE_STATUS);
+		gp.save(); // written behind
 	}
 	
 	/**
@@ -0,0 +1,158 @@
+package svn;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import vars.LocalResources;
+import vars.properties.GlobalProperties;
+
+/**
+ * <p>The <code>BuildFingerprint</code> class identifies the state in which a branch
+ * was compiled, so that compiling it again in the very same state can be skipped.
+ * A fingerprint is made of:
+ * <ul>
+ * <li>the last changed revision of the local copy</li>
+ * <li>the make command</li>
+ * <li>a hash of the local modifications (see
+ * {@link TortoiseHandler#getLocalModificationsHash(String) getLocalModificationsHash})</li>
+ * </ul>
+ * <p>The fingerprint of the last successful make of each branch is stored alongside
+ * the launch log. Fingerprints are disposable: if they cannot be loaded or saved, the
+ * error is printed and the branch is merely compiled again on the next launch.
+ * @author guidanoli
+ * @see Launcher
+ */
+public class BuildFingerprint {
+
+	private static final String fingerprintsFile = LocalResources.fingerprints;
+	private static Properties lastSuccessful = null;
+
+	private final long revision;
+	private final String makeCommand;
+	private final String modificationsHash;
+
+	/**
+	 * Constructs a fingerprint
+	 * @param revision - last changed revision
+	 * @param makeCommand - make command
+	 * @param modificationsHash - hash of the local modifications
+	 */
+	public BuildFingerprint(long revision, String makeCommand, String modificationsHash) {
+		this.revision = revision;
+		this.makeCommand = makeCommand;
+		this.modificationsHash = modificationsHash;
+	}
+
+	/**
+	 * Computes the fingerprint of the current state of a branch whose
+	 * last changed revision is already known
+	 * @param tortoise - Tortoise SVN handler
+	 * @param branchName - branch folder name
+	 * @param revision - last changed revision of the branch
+	 * @return fingerprint or <code>null</code> if it could not be computed
+	 */
+	public static BuildFingerprint compute(TortoiseHandler tortoise, String branchName, long revision) {
+		if( revision < 0 ) return null;
+		String hash = tortoise.getLocalModificationsHash(branchName);
+		if( hash == null ) return null;
+		String makeCommand = GlobalProperties.getInstance().get("makecmd");
+		return new BuildFingerprint(revision, makeCommand, hash);
+	}
+
+	/**
+	 * Parses a fingerprint as formatted by {@link #toString()}
+	 * @param str - fingerprint string
+	 * @return fingerprint or <code>null</code> if the string is malformed
+	 */
+	public static BuildFingerprint parse(String str) {
+		if( str == null ) return null;
+		String [] fields = str.split(" ");
+		if( fields.length != 3 ) return null;
+		try {
+			return new BuildFingerprint(Long.parseLong(fields[0]), fields[1], fields[2]);
+		} catch( NumberFormatException e ) {
+			return null;
+		}
+	}
+
+	public String toString() {
+		return String.format("%d %s %s", revision, makeCommand, modificationsHash);
+	}
+
+	public boolean equals(Object obj) {
+		if( !(obj instanceof BuildFingerprint) ) return false;
+		BuildFingerprint other = (BuildFingerprint) obj;
+		return revision == other.revision && makeCommand.equals(other.makeCommand) &&
+				modificationsHash.equals(other.modificationsHash);
+	}
+
+	public int hashCode() {
+		return toString().hashCode();
+	}
+
+	/**
+	 * @param branchName - branch folder name
+	 * @return fingerprint of the last successful make of the branch,
+	 * or <code>null</code> if there is none
+	 */
+	public static synchronized BuildFingerprint getLastSuccessful(String branchName) {
+		return parse(getStore().getProperty(branchName));
+	}
+
+	/**
+	 * Stores the fingerprint of a successful make
+	 * @param branchName - branch folder name
+	 * @param fingerprint - fingerprint of the branch before the make
+	 */
+	public static synchronized void setLastSuccessful(String branchName, BuildFingerprint fingerprint) {
+		getStore().setProperty(branchName, fingerprint.toString());
+		saveStore();
+	}
+
+	/**
+	 * Forgets the last successful make of a branch, so that it will be
+	 * compiled on the next launch regardless of its fingerprint
+	 * @param branchName - branch folder name
+	 */
+	public static synchronized void forget(String branchName) {
+		if( getStore().remove(branchName) != null ) saveStore();
+	}
+
+	/**
+	 * Loads fingerprints file, if not loaded yet
+	 */
+	private static Properties getStore() {
+		if( lastSuccessful != null ) return lastSuccessful;
+		lastSuccessful = new Properties();
+		File f = new File(fingerprintsFile);
+		if( !f.exists() ) return lastSuccessful;
+		try( InputStream is = new FileInputStream(f) ) {
+			lastSuccessful.loadFromXML(is);
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+		return lastSuccessful;
+	}
+
+	/**
+	 * Saves fingerprints file, to a temporary file that then replaces it at once
+	 */
+	private static void saveStore() {
+		new File(LocalResources.datafolder).mkdirs();
+		File temp = new File(fingerprintsFile + ".tmp");
+		try {
+			try( OutputStream os = new FileOutputStream(temp) ) {
+				lastSuccessful.storeToXML(os, null, "UTF-8");
+			}
+			LocalResources.replace(temp, new File(fingerprintsFile));
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+
+}
@@ -0,0 +1,41 @@
+package svn;
+
+import vars.properties.bool.NotificationProperty;
+
+/**
+ * <p>The <code>LaunchFeedback</code> interface is how the {@link svn.Launcher Launcher} and the
+ * {@link svn.TortoiseHandler TortoiseHandler} report notifications and errors to the user,
+ * without depending on how they are displayed. In the graphical application, they become
+ * popups and dialogs; in batch mode, lines on the console.
+ * @author guidanoli
+ * @see gui.defaults.DefaultLaunchFeedback DefaultLaunchFeedback
+ * @see cli.ConsoleLaunchFeedback ConsoleLaunchFeedback
+ */
+public interface LaunchFeedback {
+
+	/**
+	 * Notifies the user of a launch event
+	 * @param type - notification type
+	 * @param message - notification message
+	 */
+	public void notify(NotificationProperty.Type type, String message);
+	
+	/**
+	 * Warns the user of a non fatal error
+	 * @param message - error message
+	 */
+	public void warn(String message);
+	
+	/**
+	 * Shows the output of a failed command
+	 * @param log - command output
+	 */
+	public void showLog(String log);
+	
+	/**
+	 * Shows an unexpected exception
+	 * @param e - exception
+	 */
+	public void showException(Exception e);
+	
+}
@@ -0,0 +1,188 @@
+package svn;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>The <code>LaunchHistory</code> class indexes the launch log in memory, keeping only the
+ * most recent facts of each branch (see {@link BranchHistory}), indexed by branch id, so that
+ * they can be queried without reading the log file over and over again.
+ * <p>The index is loaded on first use, and kept up to date with every entry appended by
+ * {@link LauncherLogManager}. Should the log file be changed by other means (e.g. restored
+ * from a backup), {@link #revalidate()} notices it by the file modification time and size,
+ * and reloads the index. Since entries are written behind by the log writer
+ * thread, the file is only compared once every entry appended has been written.
+ * <p>Log errors are thrown rather than shown, so that each caller reports them its own way:
+ * launch jobs through their {@link LaunchFeedback}, and the graphical interface through a dialog.
+ * @author guidanoli
+ * @see BinaryLaunchLog
+ */
+public class LaunchHistory {
+
+	/**
+	 * The most recent facts of a branch, as recorded in the launch log.
+	 * Times are in milliseconds since epoch, and 0 means there is no record.
+	 */
+	public static class BranchHistory {
+		private long lastActionMillis = 0;
+		private long lastSetupMillis = 0;
+		private long lastMakeMillis = 0;
+		private long revision = -1;
+		private int lastMakeUnits = 0;
+		
+		/**
+		 * @return time of the last action of any kind
+		 */
+		public long getLastActionMillis() { return lastActionMillis; }
+		
+		/**
+		 * @return time of the last setup that updated the branch
+		 */
+		public long getLastSetupMillis() { return lastSetupMillis; }
+		
+		/**
+		 * @return time of the last successful make
+		 */
+		public long getLastMakeMillis() { return lastMakeMillis; }
+		
+		/**
+		 * @return revision the branch was updated to by its last setup, or -1 if unknown
+		 */
+		public long getRevision() { return revision; }
+		
+		/**
+		 * @return units compiled by the last successful make that counted them, or 0 if unknown
+		 */
+		public int getLastMakeUnits() { return lastMakeUnits; }
+	}
+	
+	private static final BranchHistory none = new BranchHistory();
+	private static LaunchHistory instance = null;
+	
+	private List<BranchHistory> branches = null; // indexed by branch id
+	private File file = null; // active segment of the log
+	private long lastModified = 0;
+	private long length = 0;
+	private boolean unstamped = false; // entries appended since the last stamp
+	private long appendedCount = 0; // records queued by the log when the last entry was appended
+	
+	private LaunchHistory() {}
+	
+	/**
+	 * @return launch history singleton
+	 */
+	public static synchronized LaunchHistory getInstance() {
+		if( instance == null ) instance = new LaunchHistory();
+		return instance;
+	}
+	
+	/**
+	 * @param branchName - branch folder name
+	 * @return most recent facts of the branch (never <code>null</code>)
+	 * @throws IOException if the log could not be opened or read
+	 */
+	public synchronized BranchHistory get(String branchName) throws IOException {
+		if( branches == null ) reload();
+		BinaryLaunchLog log = LauncherLogManager.openLog();
+		int id = log.getBranchId(branchName);
+		return id < 0 || id >= branches.size() || branches.get(id) == null ? none : branches.get(id);
+	}
+	
+	/**
+	 * Reloads the index if the log has been changed since it was last loaded
+	 * or appended to. Costs a couple of file system queries otherwise, and never
+	 * waits for the log writer: while entries appended are yet to be written, the
+	 * index is ahead of the file, and the check is left to a later call.
+	 * @throws IOException if the log could not be opened or read
+	 */
+	public synchronized void revalidate() throws IOException {
+		BinaryLaunchLog log = LauncherLogManager.openLog();
+		if( branches != null && unstamped ) {
+			if( log.getWrittenCount() < appendedCount ) return; // still being written
+			stamp(log);
+		}
+		File active = log.getActiveFile();
+		if( branches == null || !Objects.equals(active, file) ||
+				( file != null && ( file.lastModified() != lastModified || file.length() != length ) ) ) reload();
+	}
+	
+	/**
+	 * Reloads the index from the log file
+	 * @throws IOException if the log could not be opened or read, in which
+	 * case the index is reloaded again on next use
+	 */
+	public synchronized void reload() throws IOException {
+		BinaryLaunchLog log = LauncherLogManager.openLog();
+		branches = new ArrayList<BranchHistory>();
+		try {
+			log.scan(new BinaryLaunchLog.RecordVisitor() {
+				public void visit(int branchId, long timestamp, int action, long arg0, long arg1, long arg2) {
+					index(branchId, timestamp, action, arg0, arg1);
+				}
+			});
+		} catch (IOException e) {
+			branches = null;
+			throw e;
+		}
+		stamp(log);
+	}
+	
+	/**
+	 * Indexes an entry just appended to the log file
+	 * @param log - log the entry has been appended to
+	 * @param branchId - branch id
+	 * @param timestamp - time stamp
+	 * @param action - action id
+	 * @param args - action arguments
+	 * @see BinaryLaunchLog#append(String, long, int, long...)
+	 */
+	synchronized void appended(BinaryLaunchLog log, int branchId, long timestamp, int action, long... args) {
+		if( branches == null ) return; // will be loaded with the entry
+		index(branchId, timestamp, action, args.length > 0 ? args[0] : BinaryLaunchLog.NONE,
+				args.length > 1 ? args[1] : BinaryLaunchLog.NONE);
+		unstamped = true; // the entry is yet to be written
+		appendedCount = log.getQueuedCount();
+	}
+	
+	/**
+	 * Forgets the index, since old segments of the log have been dropped
+	 */
+	synchronized void invalidate() {
+		branches = null;
+	}
+	
+	/**
+	 * Records the active segment of the log, its modification time and size, as they are known to the index
+	 */
+	private void stamp(BinaryLaunchLog log) {
+		unstamped = false;
+		file = log.getActiveFile();
+		lastModified = file == null ? 0 : file.lastModified();
+		length = file == null ? 0 : file.length();
+	}
+	
+	/**
+	 * Indexes a log entry
+	 */
+	private void index(int branchId, long timestamp, int action, long arg0, long arg1) {
+		if( branchId < 0 ) return;
+		while( branches.size() <= branchId ) branches.add(null);
+		BranchHistory history = branches.get(branchId);
+		if( history == null ) {
+			history = new BranchHistory();
+			branches.set(branchId, history);
+		}
+		history.lastActionMillis = Math.max(history.lastActionMillis, timestamp);
+		if( action == BinaryLaunchLog.SETUP && timestamp >= history.lastSetupMillis ) {
+			history.lastSetupMillis = timestamp;
+			if( arg1 != BinaryLaunchLog.NONE ) history.revision = arg1;
+		} else if( action == BinaryLaunchLog.MAKE && timestamp >= history.lastMakeMillis ) {
+			history.lastMakeMillis = timestamp;
+			if( arg1 != BinaryLaunchLog.NONE ) history.lastMakeUnits = (int) arg1;
+		}
+	}
+	
+}
@@ -0,0 +1,126 @@
+package svn;
+
+/**
+ * <p>The <code>LaunchLogQuery</code> selects records of the launch log by branch, action
+ * and time range, in either order, up to a limit. It is run by
+ * {@link BinaryLaunchLog#query(LaunchLogQuery, BinaryLaunchLog.RecordVisitor)}, which
+ * skips whole segments out of the time range and stops as soon as the limit is reached,
+ * so that its cost is proportional to what is selected rather than to the whole history.
+ * <p>Every criterion is optional, and the query selects every record by default, oldest first:
+ * <pre>
+ * new LaunchLogQuery().branch("trunk").since(lastWeek).newestFirst().limit(100)
+ * </pre>
+ * @author guidanoli
+ * @see BinaryLaunchLog
+ */
+public class LaunchLogQuery {
+
+	/** No limit */
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+	
+	private String branchName = null;
+	private int action = 0;
+	private long since = Long.MIN_VALUE;
+	private long until = Long.MAX_VALUE;
+	private boolean newestFirst = false;
+	private int limit = UNLIMITED;
+	
+	/**
+	 * @param branchName - branch name or <code>null</code> for every branch
+	 * @return this query
+	 */
+	public LaunchLogQuery branch(String branchName) {
+		this.branchName = branchName;
+		return this;
+	}
+	
+	/**
+	 * @param action - action id (see {@link BinaryLaunchLog}) or 0 for every action
+	 * @return this query
+	 */
+	public LaunchLogQuery action(int action) {
+		this.action = action;
+		return this;
+	}
+	
+	/**
+	 * @param since - earliest time stamp selected (inclusive), in milliseconds since epoch
+	 * @return this query
+	 */
+	public LaunchLogQuery since(long since) {
+		this.since = since;
+		return this;
+	}
+	
+	/**
+	 * @param until - latest time stamp selected (exclusive), in milliseconds since epoch
+	 * @return this query
+	 */
+	public LaunchLogQuery until(long until) {
+		this.until = until;
+		return this;
+	}
+	
+	/**
+	 * Selects the most recent records first
+	 * @return this query
+	 */
+	public LaunchLogQuery newestFirst() {
+		this.newestFirst = true;
+		return this;
+	}
+	
+	/**
+	 * @param limit - maximum number of records selected ( >= 0 )
+	 * @return this query
+	 */
+	public LaunchLogQuery limit(int limit) {
+		assert limit >= 0;
+		this.limit = limit;
+		return this;
+	}
+	
+	/**
+	 * @return branch name or <code>null</code> for every branch
+	 */
+	public String getBranchName() { return branchName; }
+	
+	/**
+	 * @return action id or 0 for every action
+	 */
+	public int getAction() { return action; }
+	
+	/**
+	 * @return earliest time stamp selected (inclusive)
+	 */
+	public long getSince() { return since; }
+	
+	/**
+	 * @return latest time stamp selected (exclusive)
+	 */
+	public long getUntil() { return until; }
+	
+	/**
+	 * @return <code>true</code> if the most recent records are selected first
+	 */
+	public boolean isNewestFirst() { return newestFirst; }
+	
+	/**
+	 * @return maximum number of records selected
+	 */
+	public int getLimit() { return limit; }
+	
+	/**
+	 * @param timestamp - record time stamp
+	 * @return <code>true</code> if the time stamp is within the time range
+	 */
+	boolean isInRange(long timestamp) { return timestamp >= since && timestamp < until; }
+	
+	/**
+	 * @param min - earliest time stamp of a set of records
+	 * @param max - latest time stamp of a set of records
+	 * @return <code>true</code> if the set of records may overlap the time range
+	 */
+	boolean overlaps(long min, long max) { return max >= since && min < until; }
+	
+}
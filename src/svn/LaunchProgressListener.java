@@ -1,5 +1,7 @@
 package svn;
 
+import svn.stats.MakeRegression;
+
 /**
  * <p>The <code>LaunchProgressListener</code> interface intends to connect the main application
  * graphical class {@link gui.dialog.main.MainPanel MainPanel} and its kernel classes such
@@ -8,7 +10,8 @@ package svn;
  * <p>The communication between these classes is consisted of three main phases:
  * <ol>
  * <li>Beggining - triggers {@link #launchBegan}</li>
- * <li>Progress - triggers {@link #progressUpdate(int, int, int)}</li>
+ * <li>Progress - triggers {@link #progressUpdate(int, int, int)} and, while compiling,
+ * {@link #makeProgressUpdate(int, MakeProgress)}</li>
  * <li>End - triggers {@link #launchEnded()}</li>
  * </ol>
  * @author guidanoli
@@ -23,6 +26,7 @@ public interface LaunchProgressListener {
 	public static final int ENDED = 4;
 	public static final int INVALID = 5;
 	public static final int FAILED = 6;
+	public static final int UPTODATE = 7;
 
 	/**
 	 * Signals the application that the launch job has begun.
@@ -38,6 +42,26 @@ public interface LaunchProgressListener {
 	 */
 	public void progressUpdate(int i, int setup, int make);
 	
+	/**
+	 * Indicates how far a running compilation job has gone. It is called from the
+	 * thread draining the job output, at most once every
+	 * {@link MakeProgressTracker#UPDATE_INTERVAL} milliseconds per branch.
+	 * @param i - index of branch in relation to the array returned by
+	 * {@link svn.BranchManager#getBranchNames() getBranchNames}.
+	 * @param progress - estimated progress
+	 */
+	public void makeProgressUpdate(int i, MakeProgress progress);
+	
+	/**
+	 * Indicates that a compilation job that has just ended took much longer than
+	 * the previous ones of the same branch (see {@link svn.stats.RegressionDetector
+	 * RegressionDetector}).
+	 * @param i - index of branch in relation to the array returned by
+	 * {@link svn.BranchManager#getBranchNames() getBranchNames}.
+	 * @param regression - make regression
+	 */
+	public void makeRegression(int i, MakeRegression regression);
+	
 	/**
 	 * Signals the application that the launch job has ended.
 	 * Should update JTable since the last setup dates may change.
@@ -1,68 +1,108 @@
 package svn;
 
+import java.text.SimpleDateFormat;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.concurrent.Semaphore;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import gui.defaults.DefaultNotificationPopup;
+import gui.defaults.DefaultLaunchFeedback;
 import gui.error.FatalError;
-import gui.error.LightError;
 import svn.error.MakeErrorListener;
 import svn.error.SetupErrorListener;
+import svn.scheduler.AdaptiveConcurrencyController;
+import svn.scheduler.DurationPredictor;
+import svn.scheduler.ExecutionMode;
+import svn.scheduler.JobScheduler;
+import svn.scheduler.SchedulingPolicy;
+import svn.stats.MakeRegression;
 import vars.Language;
 import vars.properties.GlobalProperties;
 import vars.properties.bool.NotificationProperty;
 
 /**
  * <p>The <code>Launcher</code> class servers the purpose of managing the set up and compile jobs, 
- * with respect to thread buffers, semaphores and call backs to the main panel.
+ * with respect to the job schedulers, the completion latch and call backs to the main panel.
  * <p>It does not handles the processes directly. This functionality is delegated to the methods of the
  * {@link svn.TortoiseHandler TortoiseHandler} wrapper class.
  * <p>Every progress update triggered by a branch calls the
  * {@link svn.LaunchProgressListener#progressUpdate(int, int, int) LaunchProgressListener.progressUpdate}
  * method, that updates the JTable from the {@link gui.dialog.main.MainPanel} with the corresponding status
  * for each branch (if there is any activity at all).
+ * <p>Jobs flow through a two-stage pipeline, each stage being a {@link svn.scheduler.JobScheduler JobScheduler}
+ * with its own concurrency limit. This way, a branch waiting on the SVN server does not hold a slot that
+ * could be compiling another branch, and vice versa.
  * It operates the following way:
  * <ol>
  * <li>List all branches that have been scheduled to setup or compile</li>
- * <li>For each branch, create a thread (even for the ones that have no jobs scheduled) and put it on the
- * thread buffer. The thread buffer maximum size is set by the property 'maxthreads'.</li>
- * <li>When a thread is allowed to be run, it first checks if there is any setup job scheduled and executes
- * it if so. The setup command is delegated to the {@link svn.TortoiseHandler#setup setup} method.</li>
- * <li>Then, after the setup job is complete, it checks if there is any compile job scheduled and executes
- * it if so. The make command is delegated to the {@link svn.TortoiseHandler#make make} method.</li>
- * <li>The thread is removed from the buffer.</li>
+ * <li>Branches with a setup job scheduled are queued on the setup stage, whose number of jobs running
+ * at the same time is set by the property 'maxthreads'. Branches with a compile job only go straight to
+ * the make stage. Branches with no jobs are not queued at all.</li>
+ * <li>On the setup stage, the branch is cleaned up and set up. The setup command is delegated to the
+ * {@link svn.TortoiseHandler#setup setup} method.</li>
+ * <li>As soon as the setup job is complete, if there is any compile job scheduled, the branch is queued
+ * on the make stage, whose number of jobs running at the same time is set by the property 'maxmakes'.
+ * If the property 'makemode' is set to 'adaptive', this number is tuned during the launch by an
+ * {@link svn.scheduler.AdaptiveConcurrencyController AdaptiveConcurrencyController}, according to the
+ * system load.
+ * The make command is delegated to the {@link svn.TortoiseHandler#make make} method. If the branch is in
+ * the very same state as in its last successful compilation (see {@link svn.BuildFingerprint BuildFingerprint}),
+ * it is marked as up to date instead, unless the property 'makeskip' is set to 'force'.</li>
+ * <li>The branch counts down the launch completion latch.</li>
  * <li>When the last branch job has been completed, the {@link LaunchProgressListener#launchEnded launchEnded}
  * method is triggered, making the application return to its previously idle state.</li>
  * </ol>
+ * <p>The kind of thread on which jobs run is set by the property 'execmode', and the order in which
+ * queued branches are run, by the property 'schedpolicy'.
+ * <p>Jobs never wait for the user: notifications and errors are published to an
+ * {@link svn.AsyncLaunchFeedback AsyncLaunchFeedback}, that displays them on its own thread.
  * @author guidanoli
  * @see svn.TortoiseHandler TortoiseHandler
+ * @see svn.scheduler.JobScheduler JobScheduler
  */
 public class Launcher {
 
 	// managers
 	Language lang = Language.getInstance();
 	GlobalProperties gp = GlobalProperties.getInstance();
-	BranchManager branchManager;
-	TortoiseHandler tortoise = new TortoiseHandler();
+	AsyncLaunchFeedback feedback;
+	TortoiseHandler tortoise;
 	LaunchProgressListener progressListener;
 	SetupErrorListener setupListener;
 	MakeErrorListener makeListener;
 	
+	// launch
+	String launchId = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+	
 	// branches
 	String [] branchNames;
+	int [] setupStates;
+	int [] makeStates;
+	long [] revisions;
+	Map<String, WorkingCopyInfo> probe = null;
 	
 	// launch options
 	int maxThreadCount = Integer.parseInt(gp.get("maxthreads"));
+	int maxMakeCount = Integer.parseInt(gp.get("maxmakes"));
+	boolean adaptiveMakes = gp.get("makemode").equals("adaptive");
 	int cleanUps = Integer.parseInt(gp.get("cleanups"));
+	boolean forceMakes = gp.get("makeskip").equals("force");
+	ExecutionMode executionMode = ExecutionMode.fromLabel(gp.get("execmode"));
+	SchedulingPolicy schedulingPolicy = SchedulingPolicy.fromLabel(gp.get("schedpolicy"));
 	
-	// threads
-	Thread [] threads;
-	static Semaphore threadBufferSem;
-	static Semaphore countSem = new Semaphore(1);
-	int toBeRunThreads = 0;
-	boolean interrupted = false;
+	// scheduling
+	JobScheduler setupStage;
+	JobScheduler makeStage;
+	AdaptiveConcurrencyController makeController;
+	DurationPredictor predictor;
+	AtomicInteger pendingSetups;
+	CountDownLatch pendingBranches;
+	volatile boolean interrupted = false;
 	boolean emptyJob = true;
 	
 	/**
@@ -74,213 +114,363 @@ public class Launcher {
 	 */
 	public Launcher( BranchManager manager, LaunchProgressListener listener , SetupErrorListener setupListener ,
 			MakeErrorListener makeListener ) {
+		this(manager.getBranchNames(), manager.getBoolSetup(), manager.getBoolMake(), false, listener,
+				setupListener, makeListener, new DefaultLaunchFeedback());
+	}
+	
+	/**
+	 * Launches the setup and/or compile jobs of the given branches.
+	 * @param branchNames - branch folder names
+	 * @param setup - if each branch will do a setup job
+	 * @param make - if each branch will be compiled
+	 * @param force - if up to date branches should be compiled anyway, regardless of
+	 * the property 'makeskip'
+	 * @param listener - an implementation of the LaunchProgressListener interface
+	 * @param feedback - how notifications and errors are reported to the user. It is
+	 * only called from a dedicated thread, so it may block without holding any job.
+	 * @see svn.LaunchProgressListener
+	 * @see svn.LaunchFeedback
+	 */
+	public Launcher( String [] branchNames, boolean [] setup, boolean [] make, boolean force,
+			LaunchProgressListener listener , SetupErrorListener setupListener , MakeErrorListener makeListener ,
+			LaunchFeedback feedback ) {
 		this.progressListener = listener;
+		if( force ) this.forceMakes = true;
 		this.setupListener = setupListener;
 		this.makeListener = makeListener;
-		this.branchManager = manager;
-		this.branchNames = manager.getBranchNames();
-		if( maxThreadCount < 1 )
+		this.feedback = new AsyncLaunchFeedback(feedback);
+		this.tortoise = new TortoiseHandler(this.feedback);
+		this.tortoise.setLaunchId(launchId);
+		this.branchNames = branchNames;
+		if( maxThreadCount < 1 || maxMakeCount < 1 )
 			FatalError.show("Maximum number of threads is invalid.");
-		threadBufferSem = new Semaphore(maxThreadCount);
-		boolean [] setup = manager.getBoolSetup();
-		boolean [] make = manager.getBoolMake();
 		if( branchNames == null || setup == null || make == null || listener == null )
 			FatalError.show("Could not gather informations to launch.");
-		toBeRunThreads = branchNames.length;
-		for( boolean s : setup ) if( s ) emptyJob = false;
-		if( emptyJob ) for( boolean m : make ) if( m ) emptyJob = false;
-		threads = new Thread[branchNames.length];
+		int jobCount = 0, setupCount = 0;
+		for( int i = 0 ; i < branchNames.length ; i++ ) {
+			if( setup[i] || make[i] ) jobCount++;
+			if( setup[i] ) setupCount++;
+		}
+		emptyJob = jobCount == 0;
+		setupStates = new int[branchNames.length];
+		makeStates = new int[branchNames.length];
+		revisions = new long[branchNames.length];
+		setupStage = new JobScheduler("setup", maxThreadCount, executionMode);
+		makeStage = new JobScheduler("make", maxMakeCount, executionMode);
+		if( adaptiveMakes ) {
+			int maxLimit = Math.max(maxMakeCount, Runtime.getRuntime().availableProcessors());
+			makeController = new AdaptiveConcurrencyController(makeStage, "make", 1, maxLimit);
+		}
+		if( schedulingPolicy != SchedulingPolicy.FIFO ) predictor = new DurationPredictor();
+		pendingSetups = new AtomicInteger(setupCount);
+		pendingBranches = new CountDownLatch(jobCount);
 		listener.launchBegan();
+		if( makeController != null ) makeController.start();
 		for( int i = 0 ; i < branchNames.length ; i++ )
-			threads[i] = launch(i,setup[i],make[i]);
+			launch(i,setup[i],make[i]);
+		setupStage.shutdown(); // threads leave as soon as the queue is empty
+		if( setupCount == 0 ) makeStage.shutdown();
+		if( emptyJob ) launchDone();
 	}
 	
 	public void interrupt() {
 		interrupted = true;
+		setupStage.cancel();
+		makeStage.cancel();
+		if( makeController != null ) makeController.stop();
 		tortoise.killProcesses();
+		feedback.close();
 		progressListener.launchEnded();
 	}
 	
 	/**
-	 * Initiates launch thread of i-th branch
+	 * @return launch identifier, under which the job outputs are logged
+	 * @see svn.process.JobLog JobLog
+	 */
+	public String getLaunchId() {
+		return launchId;
+	}
+	
+	/**
+	 * Waits for every notification and error of the launch to be delivered,
+	 * once the launch has ended
+	 * @param timeout - maximum time to wait, in milliseconds
+	 * @return <code>true</code> if every one of them has been delivered
+	 * @see AsyncLaunchFeedback#awaitDelivery(long)
+	 */
+	public boolean awaitFeedback(long timeout) {
+		return feedback.awaitDelivery(timeout);
+	}
+	
+	/**
+	 * Queues the launch job of i-th branch on its first stage. Branches
+	 * without any job are not queued, and thus, do not hold any thread.
 	 * @param i - index of branch in branchNames array
 	 * @param setup - if the branch will do a setup job
 	 * @param make - if the branch will be compiled
-	 * @return Thread object
-	 * @see java.lang.Thread Thread
+	 * @see svn.scheduler.JobScheduler#submit(Runnable) submit
 	 */
-	protected Thread launch(int i, boolean setup, boolean make) {
-		String name = branchNames[i];
-		LauncherLogManager logManager = new LauncherLogManager(name);
-		Thread t = new Thread() {
+	protected void launch(int i, boolean setup, boolean make) {
+		setupStates[i] = setup ? LaunchProgressListener.WAITING : LaunchProgressListener.OFF;
+		makeStates[i] = make ? LaunchProgressListener.WAITING : LaunchProgressListener.OFF;
+		update(i);
+		if( setup ) launchSetup(i);
+		else if( make ) launchMake(i, true);
+	}
+	
+	/**
+	 * Queues the setup job of the i-th branch on the setup stage
+	 * @param i - index of branch in branchNames array
+	 */
+	private void launchSetup(int i) {
+		long priority = 0;
+		if( predictor != null ) priority = schedulingPolicy.getSetupPriority(predictor, branchNames[i],
+				makeStates[i] != LaunchProgressListener.OFF);
+		setupStage.submit(new Runnable() {
 			public void run() {
-				boolean success;
-				boolean validDir = tortoise.isTortoiseDir(name);
-				int state_setup = setup ? ( validDir ? LaunchProgressListener.WAITING : LaunchProgressListener.INVALID ) : LaunchProgressListener.OFF;
-				int state_make = make ? ( validDir ? LaunchProgressListener.WAITING : LaunchProgressListener.INVALID ) : LaunchProgressListener.OFF;
-				update(i, state_setup, state_make);
-				joinThread();
-				if( setup || make )
-				{
-					if( validDir )
-					{
-						if( setup )
-						{
-							state_setup = LaunchProgressListener.UNLOCKING;
-							update(i, state_setup, state_make);
-							if(interrupted) return;
-							success = tortoise.cleanUp(name,cleanUps);
-							if(interrupted) return;
-							if(success)
-							{
-								new DefaultNotificationPopup(
-										NotificationProperty.Type.CLEANUP,
-										lang.format("gui_notification_launcher_clean_success", name));
-								state_setup = LaunchProgressListener.RUNNING;
-								update(i, state_setup, state_make);
-							}
-							else
-							{
-								new DefaultNotificationPopup(
-										NotificationProperty.Type.CLEANUP,
-										lang.format("gui_notification_launcher_clean_fail", name));
-								state_setup = LaunchProgressListener.FAILED;
-								if( make ) state_make = LaunchProgressListener.FAILED;
-								update(i, state_setup, state_make);
-								exitThread();
-								return;
-							}
-							if(interrupted) return;
-							Long oldRevisionNumber = tortoise.getRevisionNumber(name);
-							success = tortoise.setup(name, setupListener);
-							if(interrupted) return;
-							if(success)
-							{
-								new DefaultNotificationPopup(
-										NotificationProperty.Type.SETUP,
-										lang.format("gui_notification_launcher_setup_success", name));
-								state_setup = LaunchProgressListener.ENDED;
-								update(i, state_setup, state_make);
-								Long newRevisionNumber = tortoise.getRevisionNumber(name);
-								logManager.logSetup(oldRevisionNumber, newRevisionNumber);
-							}
-							else
-							{
-								new DefaultNotificationPopup(
-										NotificationProperty.Type.SETUP,
-										lang.format("gui_notification_launcher_setup_fail", name));
-								state_setup = LaunchProgressListener.FAILED;
-								if( make ) state_make = LaunchProgressListener.FAILED;
-								update(i, state_setup, state_make);
-								exitThread();
-								return;
-							}
-						}
-						if(interrupted) return;
-						if( make ) {
-							state_make = LaunchProgressListener.RUNNING;
-							update(i, state_setup, state_make);
-							Instant start = Instant.now();
-							success = tortoise.make(name, makeListener);
-							if(interrupted) return;
-							if(success)
-							{
-								Instant end = Instant.now();
-								new DefaultNotificationPopup(
-										NotificationProperty.Type.MAKE,
-										lang.format("gui_notification_launcher_make_success", name));
-								Duration timeElapsed = Duration.between(start, end);
-								state_make = LaunchProgressListener.ENDED;
-								update(i, state_setup, state_make);
-								logManager.logMake(timeElapsed.toMillis());
-							}
-							else
-							{
-								new DefaultNotificationPopup(
-										NotificationProperty.Type.MAKE,
-										lang.format("gui_notification_launcher_make_fail", name));
-								state_make = LaunchProgressListener.FAILED;
-								update(i, state_setup, state_make);
-								exitThread();
-								return;
-							}
-						}
-					}
-					else
-					{
-						LightError.show(lang.format("gui_errmsg_launcher_invalidfolder", name));
-					}
+				boolean handedOver = false;
+				try {
+					handedOver = runSetup(i);
+				} finally {
+					if( !handedOver ) branchDone();
+					if( pendingSetups.decrementAndGet() == 0 ) makeStage.shutdown();
 				}
-				exitThread();
 			}
-		};
-		
-		t.start();
-		return t;
+		}, priority);
 	}
 	
 	/**
-	 * Updates JTable icons with current progress
+	 * Queues the compile job of the i-th branch on the make stage
+	 * @param i - index of branch in branchNames array
+	 * @param validate - if the branch folder has yet to be validated
+	 */
+	private void launchMake(int i, boolean validate) {
+		long priority = 0;
+		if( predictor != null ) priority = schedulingPolicy.getMakePriority(predictor, branchNames[i]);
+		makeStage.submit(new Runnable() {
+			public void run() {
+				try {
+					runMake(i, validate);
+				} finally {
+					if( makeController != null ) makeController.jobFinished();
+					branchDone();
+				}
+			}
+		}, priority);
+	}
+	
+	/**
+	 * <p>Gets what is known of the i-th branch folder before the launch. On the first call,
+	 * every branch with a job is probed at once (see {@link TortoiseHandler#probe(String...) probe}),
+	 * so that jobs do not spawn SVN commands of their own to validate their folders.
+	 * @param i - index of branch in branchNames array
+	 * @return working copy information
+	 */
+	private synchronized WorkingCopyInfo getProbe(int i) {
+		if( probe == null ) {
+			List<String> names = new ArrayList<String>();
+			for( int j = 0 ; j < branchNames.length ; j++ )
+				if( setupStates[j] != LaunchProgressListener.OFF || makeStates[j] != LaunchProgressListener.OFF )
+					names.add(branchNames[j]);
+			probe = tortoise.probe(names.toArray(new String[names.size()]));
+		}
+		WorkingCopyInfo info = probe.get(branchNames[i]);
+		return info == null ? new WorkingCopyInfo(branchNames[i]) : info;
+	}
+	
+	/**
+	 * Checks whether the i-th branch folder can be operated on. If not,
+	 * its jobs are marked as invalid and the user is warned.
+	 * @param i - index of branch in branchNames array
+	 * @return <code>true</code> if the branch folder is valid
+	 */
+	private boolean checkBranch(int i) {
+		String name = branchNames[i];
+		WorkingCopyInfo info = getProbe(i);
+		revisions[i] = info.getLastChangedRevision();
+		if( info.isValid() ) return true;
+		if( setupStates[i] != LaunchProgressListener.OFF ) setupStates[i] = LaunchProgressListener.INVALID;
+		if( makeStates[i] != LaunchProgressListener.OFF ) makeStates[i] = LaunchProgressListener.INVALID;
+		update(i);
+		feedback.warn(lang.format("gui_errmsg_launcher_invalidfolder", name));
+		return false;
+	}
+	
+	/**
+	 * Runs the clean up and setup jobs of the i-th branch on the current
+	 * setup stage thread. If they succeed and the branch is scheduled to be
+	 * compiled, it is handed over to the make stage.
+	 * @param i - index of branch in branchNames array
+	 * @return <code>true</code> if the branch has been handed over to the make stage
+	 */
+	private boolean runSetup(int i) {
+		String name = branchNames[i];
+		LauncherLogManager logManager = new LauncherLogManager(name, feedback);
+		boolean make = makeStates[i] != LaunchProgressListener.OFF;
+		boolean success;
+		if(interrupted) return false;
+		if( !checkBranch(i) ) return false;
+		setupStates[i] = LaunchProgressListener.UNLOCKING;
+		update(i);
+		if(interrupted) return false;
+		success = tortoise.cleanUp(name,cleanUps);
+		if(interrupted) return false;
+		if(success)
+		{
+			feedback.notify(NotificationProperty.Type.CLEANUP, lang.format("gui_notification_launcher_clean_success", name));
+			setupStates[i] = LaunchProgressListener.RUNNING;
+			update(i);
+		}
+		else
+		{
+			feedback.notify(NotificationProperty.Type.CLEANUP, lang.format("gui_notification_launcher_clean_fail", name));
+			setupStates[i] = LaunchProgressListener.FAILED;
+			if( make ) makeStates[i] = LaunchProgressListener.FAILED;
+			update(i);
+			return false;
+		}
+		if(interrupted) return false;
+		Long oldRevisionNumber = revisions[i];
+		Instant start = Instant.now();
+		success = tortoise.setup(name, setupListener);
+		if(interrupted) return false;
+		if(success)
+		{
+			feedback.notify(NotificationProperty.Type.SETUP, lang.format("gui_notification_launcher_setup_success", name));
+			setupStates[i] = LaunchProgressListener.ENDED;
+			update(i);
+			Duration timeElapsed = Duration.between(start, Instant.now());
+			revisions[i] = tortoise.probe(name).get(name).getLastChangedRevision();
+			logManager.logSetup(oldRevisionNumber, revisions[i], timeElapsed.toMillis());
+		}
+		else
+		{
+			feedback.notify(NotificationProperty.Type.SETUP, lang.format("gui_notification_launcher_setup_fail", name));
+			setupStates[i] = LaunchProgressListener.FAILED;
+			if( make ) makeStates[i] = LaunchProgressListener.FAILED;
+			update(i);
+			return false;
+		}
+		if( !make || interrupted ) return false;
+		launchMake(i, false);
+		return true;
+	}
+	
+	/**
+	 * Runs the compile job of the i-th branch on the current make stage thread
+	 * @param i - index of branch in branchNames array
+	 * @param validate - if the branch folder has yet to be validated
+	 */
+	private void runMake(final int i, boolean validate) {
+		String name = branchNames[i];
+		LauncherLogManager logManager = new LauncherLogManager(name, feedback);
+		boolean success;
+		if(interrupted) return;
+		if( validate && !checkBranch(i) ) return;
+		BuildFingerprint fingerprint = BuildFingerprint.compute(tortoise, name, revisions[i]);
+		if( !forceMakes && fingerprint != null && fingerprint.equals(BuildFingerprint.getLastSuccessful(name)) )
+		{
+			feedback.notify(NotificationProperty.Type.MAKE, lang.format("gui_notification_launcher_make_uptodate", name));
+			makeStates[i] = LaunchProgressListener.UPTODATE;
+			update(i);
+			return;
+		}
+		if(interrupted) return;
+		makeStates[i] = LaunchProgressListener.RUNNING;
+		update(i);
+		Instant start = Instant.now();
+		MakeProgressTracker tracker = new MakeProgressTracker(logManager.getLastMakeUnits(),
+				new MakeProgressTracker.Listener() {
+			public void progress(MakeProgress progress) {
+				if( !interrupted ) progressListener.makeProgressUpdate(i, progress);
+			}
+		});
+		success = tortoise.make(name, makeListener, tracker);
+		if(interrupted) return;
+		if(success)
+		{
+			if( fingerprint != null ) BuildFingerprint.setLastSuccessful(name, fingerprint);
+			Instant end = Instant.now();
+			feedback.notify(NotificationProperty.Type.MAKE, lang.format("gui_notification_launcher_make_success", name));
+			Duration timeElapsed = Duration.between(start, end);
+			makeStates[i] = LaunchProgressListener.ENDED;
+			update(i);
+			MakeRegression regression = logManager.logMake(timeElapsed.toMillis(), tracker.getUnits());
+			if( regression != null )
+			{
+				feedback.notify(NotificationProperty.Type.MAKE, lang.format("gui_notification_launcher_make_regression",
+						name, regression.getPercent(), getRangeString(regression)));
+				progressListener.makeRegression(i, regression);
+			}
+		}
+		else
+		{
+			feedback.notify(NotificationProperty.Type.MAKE, lang.format("gui_notification_launcher_make_fail", name));
+			BuildFingerprint.forget(name);
+			makeStates[i] = LaunchProgressListener.FAILED;
+			update(i);
+		}
+	}
+	
+	/**
+	 * @param regression - make regression
+	 * @return revision range of the regression, as shown to the user
+	 */
+	private String getRangeString(MakeRegression regression)
+	{
+		if( !regression.hasRevisionRange() ) return lang.get("gui_notification_launcher_make_regression_local");
+		return lang.format("gui_notification_launcher_make_regression_range",
+				regression.getOldRevision(), regression.getNewRevision());
+	}
+	
+	/**
+	 * Updates JTable icons with the current progress of the i-th branch
 	 * @param i - branch index
-	 * @param setup - setup state
-	 * @param make - compilation state
 	 * @see LaunchProgressListener#progressUpdate(int, int, int) progressUpdate(int, int, int)
 	 */
-	private void update(int i, int setup, int make)
+	private void update(int i)
 	{
 		if(interrupted) return;
-		progressListener.progressUpdate(i, setup, make);
+		progressListener.progressUpdate(i, setupStates[i], makeStates[i]);
 	}
 	
 	/**
-	 * <p>Safely joins the thread buffer
+	 * <p>Counts down the launch completion latch. If it is the last branch
+	 * to be done, {@link #launchDone()} is called from the current thread.
 	 */
-	private void joinThread()
+	private void branchDone()
 	{
-		if(interrupted) return;
-		try {
-			threadBufferSem.acquire();
-		} catch (InterruptedException e) {
-			FatalError.show(e);
+		boolean last;
+		synchronized( pendingBranches ) {
+			pendingBranches.countDown();
+			last = pendingBranches.getCount() == 0;
 		}
+		if( last ) launchDone();
 	}
-			
+	
 	/**
-	 * <p>Safely exits the thread buffer. If it is the last thread to exit
-	 * the buffer, {@link LaunchProgressListener#launchEnded() launchEnded()}
-	 * will be called.
+	 * <p>Notifies the end of the launch and calls
+	 * {@link LaunchProgressListener#launchEnded() launchEnded()}.
 	 */
-	private void exitThread()
+	private void launchDone()
 	{
+		if( makeController != null ) makeController.stop();
 		if(interrupted) return;
-		threadBufferSem.release();
-		try {
-			countSem.acquire();
-		} catch (InterruptedException e) {
-			FatalError.show(e);
-		}
-		toBeRunThreads--;
-		System.out.println(toBeRunThreads);
-		if(toBeRunThreads==0)
+		if(!emptyJob)
 		{
-			if(!emptyJob)
-			{
-				new DefaultNotificationPopup(
-						NotificationProperty.Type.GENERAL,
-						lang.get("gui_notification_launcher_done"));
-				try {
-					TimeUnit.SECONDS.sleep(3);
-				} catch (InterruptedException e) {
-					FatalError.show(e);
-				}
+			feedback.notify(NotificationProperty.Type.GENERAL, lang.get("gui_notification_launcher_done"));
+			try {
+				TimeUnit.SECONDS.sleep(3);
+			} catch (InterruptedException e) {
+				feedback.showException(e);
 			}
-			else
-			{
-				LightError.show(lang.get("gui_errmsg_launcher_emptyjob"));
-			}
-			progressListener.launchEnded();
 		}
-		countSem.release();
+		else
+		{
+			feedback.warn(lang.get("gui_errmsg_launcher_emptyjob"));
+		}
+		feedback.close();
+		progressListener.launchEnded();
 	}
 	
 }
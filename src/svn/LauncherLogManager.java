@@ -1,19 +1,13 @@
 package svn;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.StringJoiner;
 
-import gui.error.FatalError;
 import gui.error.LightError;
+import svn.stats.DurationStatistics;
+import svn.stats.MakeRegression;
+import svn.stats.RegressionDetector;
 import vars.Language;
-import vars.LocalResources;
 import vars.properties.GlobalProperties;
 
 /**
@@ -21,6 +15,9 @@ import vars.properties.GlobalProperties;
  * about previous jobs (setup, makes...) to the log file. It appends each
  * new action to the log file along with a time stamp, the branch name and,
  * optionally, additional parameters related to the action.
+ * <p>The log is stored in binary (see {@link BinaryLaunchLog}).
+ * <p>Log errors are reported through the {@link LaunchFeedback} of the job, and
+ * never in a dialog, since logging happens on job threads.
  * 
  * @author guidanoli
  * @see {@link Launcher}
@@ -29,102 +26,150 @@ public class LauncherLogManager {
 
 	private static Language lang = Language.getInstance();
 	private String branchName;
-	private static String logFile = LocalResources.launchlog;
+	private LaunchFeedback feedback;
 		
 	/**
 	 * Constructs a launcher log for a branch
 	 * @param branchName - the branch folder name
+	 * @param feedback - to which log errors are reported
 	 */
-	public LauncherLogManager(String branchName) {
+	public LauncherLogManager(String branchName, LaunchFeedback feedback) {
 		this.branchName = branchName;
+		this.feedback = feedback;
 	}
 	
 	/**
 	 * Get most recent time stamp attached to branch registered
 	 * in log, for any action.
-	 * @return time stamp
+	 * @return time stamp or 0 if unknown
+	 * @see LaunchHistory
 	 */
 	public long getLastSetupMillis() {
-		ArrayList<String []> data = readLog();
-		if( data == null ) return 0;
-		Iterator<String []> iterator = data.iterator();
-		long timeStamp = 0;
-		while( iterator.hasNext() )
-		{
-			String [] registry = iterator.next();
-			String branch = registry[0];
-			if( !branch.equals(branchName) ) continue;
-			if( registry.length < 3 )
-			{
-				LightError.show(lang.get("gui_errmsg_launcher_log_badformat"));
-				break;
-			}
-			try {
-				long ts = Long.parseLong(registry[1]);
-				if( ts > timeStamp ) timeStamp = ts;
-			}
-			catch( Exception e )
-			{
-				LightError.show(e);
-				break;
-			}
+		try {
+			return LaunchHistory.getInstance().get(branchName).getLastActionMillis();
+		} catch (IOException e) {
+			feedback.warn(lang.get("gui_errmsg_launcher_log_readfailed"));
+			return 0;
 		}
-		return timeStamp;
 	}
 	
 	/**
-	 * <p>Reads log file (if exists) and returns its data as an array list
-	 * with string arrays. The data is ordered as such:
+	 * <p>Reads the whole log and returns its data as an array list
+	 * with string arrays, as in the former text log. The data is ordered as such:
 	 * <ol>
 	 * <li>branch name</li>
 	 * <li>time stamp</li>
 	 * <li>action identifier</li>
 	 * <li>additional action arguments</li>
 	 * </ol>
-	 * @return
+	 * <p>Prefer {@link BinaryLaunchLog#scan(BinaryLaunchLog.RecordVisitor)}, which does
+	 * not allocate anything per entry.
+	 * @return log entries or <code>null</code> if the log could not be read
 	 */
 	public static ArrayList<String []> readLog() {
-		ArrayList<String []> info = new ArrayList<String []>();
-		File file = new File(logFile);
+		final ArrayList<String []> info = new ArrayList<String []>();
 		try {
-			if ( file.createNewFile() ) return info;
-			BufferedReader br = new BufferedReader(new FileReader(file));
-			String s;
-			while((s=br.readLine()) != null)
-			{
-				String [] values = s.split("\\s+");
-				info.add(values);
-			}
-			br.close();
-		} catch (Exception e) {
-			FatalError.show(e,null,false); // does not quit
+			final BinaryLaunchLog log = openLog();
+			log.scan(new BinaryLaunchLog.RecordVisitor() {
+				public void visit(int branchId, long timestamp, int action, long arg0, long arg1, long arg2) {
+					String branch = log.getBranchName(branchId);
+					String actionName = BinaryLaunchLog.getActionName(action);
+					if( branch == null || actionName == null ) return;
+					int argc = arg0 == BinaryLaunchLog.NONE ? 0 : arg1 == BinaryLaunchLog.NONE ? 1 :
+						arg2 == BinaryLaunchLog.NONE ? 2 : 3;
+					String [] values = new String[3 + argc];
+					values[0] = branch;
+					values[1] = Long.toString(timestamp);
+					values[2] = actionName;
+					long [] args = { arg0, arg1, arg2 };
+					for( int i = 0 ; i < argc ; i++ ) values[3 + i] = Long.toString(args[i]);
+					info.add(values);
+				}
+			});
+		} catch (IOException e) {
 			return null;
 		}
 		return info;
 	}
 	
+	/**
+	 * Opens the log, if not opened yet, with the sync policy set by the property 'logsync'
+	 * @return log
+	 * @throws IOException if the log could not be opened
+	 */
+	public static BinaryLaunchLog openLog() throws IOException {
+		BinaryLaunchLog log = BinaryLaunchLog.getInstance();
+		log.setSyncPolicy(BinaryLaunchLog.SyncPolicy.fromLabel(GlobalProperties.getInstance().get("logsync")));
+		return log;
+	}
+	
 	/**
 	 * Logs a setup action alongside with the old revision
-	 * number and the new revision number. If equal, log
+	 * number, the new revision number and the time elapsed
+	 * to set up. If the revision numbers are equal, log
 	 * won't happen.
 	 * @param oldRevision - old revision number
 	 * @param newRevision - new revision number
+	 * @param timeElapsed - time elapsed to set up
 	 * @see TortoiseHandler
+	 * @see DurationStatistics
 	 */
-	public void logSetup(Long oldRevision, Long newRevision)
+	public void logSetup(Long oldRevision, Long newRevision, long timeElapsed)
 	{
 		if( oldRevision.equals(newRevision) ) return;
-		register("setup",oldRevision,newRevision);
+		DurationStatistics stats = DurationStatistics.getInstance(); // built from the log before this entry
+		register(BinaryLaunchLog.SETUP,oldRevision,newRevision,timeElapsed);
+		stats.recordSetup(branchName, timeElapsed);
 	}
 	
 	/**
-	 * Logs a compilation job.
+	 * Logs a compilation job, and checks whether it is a regression in relation
+	 * to the previous ones (see {@link RegressionDetector}), in which case the
+	 * regression is logged as well. If the property 'regression' is invalid,
+	 * its default value is used.
 	 * @param timeElapsed time elapsed to compile
+	 * @param units number of units compiled
+	 * @return regression or <code>null</code> if the job is not a regression
 	 * @see TortoiseHandler
+	 * @see MakeProgressTracker
+	 * @see DurationStatistics
 	 */
-	public void logMake(long timeElapsed)
+	public MakeRegression logMake(long timeElapsed, int units)
 	{
-		register("make",timeElapsed);
+		GlobalProperties gp = GlobalProperties.getInstance();
+		DurationStatistics stats = DurationStatistics.getInstance(); // built from the log before this entry
+		MakeRegression regression = null;
+		int threshold;
+		try {
+			threshold = Integer.parseInt(gp.get("regression"));
+		} catch( NumberFormatException e ) {
+			threshold = Integer.parseInt(gp.getDefaultValue("regression")); // job threads do not prompt
+		}
+		try {
+			regression = RegressionDetector.check(branchName, timeElapsed, threshold);
+		} catch( IOException e ) {
+			feedback.warn(lang.get("gui_errmsg_launcher_log_readfailed"));
+		}
+		register(BinaryLaunchLog.MAKE,timeElapsed,units);
+		if( regression != null )
+			register(BinaryLaunchLog.REGRESSION,regression.getPercent(),regression.getOldRevision(),regression.getNewRevision());
+		stats.recordMake(branchName, gp.get("makecmd"), timeElapsed);
+		return regression;
+	}
+	
+	/**
+	 * Get number of units compiled by the most recent compilation
+	 * job of the branch registered in log.
+	 * @return number of units or 0 if unknown
+	 * @see LaunchHistory
+	 */
+	public int getLastMakeUnits() {
+		try {
+			return LaunchHistory.getInstance().get(branchName).getLastMakeUnits();
+		} catch (IOException e) {
+			feedback.warn(lang.get("gui_errmsg_launcher_log_readfailed"));
+			return 0;
+		}
 	}
 
 	/**
@@ -136,127 +181,109 @@ public class LauncherLogManager {
 	 * <li>additional action arguments</li>
 	 * </ul>
 	 * <p>If occurs an IO error, the program will warn the user
-	 * with an error dialog but will not terminate the program
-	 * since it could be running sensitive procedures during the
-	 * log registry.
-	 * @param action - action identifier
-	 * @param args - additional action arguments (whose toString()
-	 * methods will be called to be written on the log)
-	 * @see LauncherLogManager#logMake(long) logMake(long)
-	 * @see LauncherLogManager#logSetup(Long, Long) logSetup(Long, Long)
+	 * through the launch feedback, once the history lock is released,
+	 * but will not terminate the program since it could be running
+	 * sensitive procedures during the log registry.
+	 * <p>The registry is also indexed by the {@link LaunchHistory}.
+	 * Registries are queued and written by the log writer thread, without
+	 * blocking the job that registers them (see {@link BinaryLaunchLog#append}).
+	 * IO errors are thus reported by the following registry.
+	 * @param action - action identifier (see {@link BinaryLaunchLog})
+	 * @param args - additional action arguments
+	 * @see LauncherLogManager#logMake(long, int) logMake(long, int)
+	 * @see LauncherLogManager#logSetup(Long, Long, long) logSetup(Long, Long, long)
 	 */
-	private void register(String action, Object... args)
+	private void register(int action, long... args)
 	{
-		String timestamp = Long.toString(System.currentTimeMillis());
-		StringJoiner strj = new StringJoiner(" ");
-		strj.add(branchName)
-			.add(timestamp)
-			.add(action);
-		for( Object arg : args ) strj.add(arg.toString());
-		String logEntry = strj.toString();
-		if( !assertLogFile() ) return;
+		long timestamp = System.currentTimeMillis();
+		BinaryLaunchLog log;
 		try {
-			BufferedWriter writer = new BufferedWriter(
-				new FileWriter(logFile, true) // true for 'append' mode
-			);
-			writer.write(logEntry);
-			writer.newLine();
-			writer.close();
+			log = openLog();
 		} catch (IOException e) {
-			FatalError.show(lang.get("gui_errmsg_launcher_log_registerfailed"), null, false); // does not exit
+			feedback.warn(lang.get("gui_errmsg_launcher_log_openfailed"));
+			return;
 		}
+		LaunchHistory history = LaunchHistory.getInstance();
+		boolean registered = true;
+		synchronized( history ) {
+			try {
+				log.append(branchName, timestamp, action, args);
+				history.appended(log, log.getBranchId(branchName), timestamp, action, args);
+			} catch (IOException e) {
+				registered = false;
+			}
+		}
+		if( !registered ) feedback.warn(lang.get("gui_errmsg_launcher_log_registerfailed"));
 	}
 	
 	/**
 	 * <p>Restrains log to a maximum file size and, and if it surpasses that
 	 * threshold, reduces the log size to a percentage so that:
-	 * <p><code>new size = maximum size * percentage</code>
-	 * <p>The number of entries that will be deducted is roughly estimated by
-	 * the current log file size and the current number of entries.
+	 * <p><code>new size <= maximum size * percentage</code>
+	 * <p>Since old entries are dropped a whole segment at a time (see
+	 * {@link BinaryLaunchLog#retain(long)}), the new size may be smaller than that,
+	 * by up to a segment.
 	 * @param maxLogSize - maximum log file size <b>in bytes</b> ( > 0 )
 	 * @param percentage - % of file size after reduction, between 0 and 1
+	 * @param feedback - to which log errors are reported
 	 * @return <code>true</code> if log has been reduced, or <code>false</code> if else.
 	 */
-	public static boolean restrainLogSize(long maxLogSize, float percentage) {
-		ArrayList<String []> logArray = readLog();
-		if( logArray == null ) return false;
-		int entriesCount = logArray.size();
-		File f = new File(logFile);
-		long fileSize = f.length();
-		if( fileSize < maxLogSize ) return false;
-		int maxEntriesCount = (int) (entriesCount * ((double) maxLogSize / (double) fileSize));
-		return restrainLogEntriesCount(maxEntriesCount, percentage);
+	public static boolean restrainLogSize(long maxLogSize, float percentage, LaunchFeedback feedback) {
+		return retain(maxLogSize, (long) (maxLogSize * percentage), feedback);
 	}
 		
 	/**
 	 * <p>Restrains log to a maximum number of entries and, and if it surpasses that
 	 * threshold, reduces the log size to a percentage so that:
-	 * <p><code>new size = maximum size * percentage</code>
+	 * <p><code>new size <= maximum size * percentage</code>
 	 * @param maxEntriesCount - maximum number of log entries ( > 0 )
 	 * @param percentage - % of entries after reduction, between 0 and 1
+	 * @param feedback - to which log errors are reported
 	 * @return <code>true</code> if log has been reduced, or <code>false</code> if else.
+	 * @see #restrainLogSize(long, float, LaunchFeedback)
 	 */
-	public static boolean restrainLogEntriesCount(int maxEntriesCount, float percentage) {
-		ArrayList<String []> logArray = readLog();
-		if( logArray == null ) return false;
-		int logSize = logArray.size();
-		if( logSize < maxEntriesCount ) return false;
-		int newLogSize = (int) (maxEntriesCount * percentage);
-		int oldestEntryIndex = logSize - newLogSize;
-		ArrayList<String []> newLogArray = new ArrayList<String []>(logArray.subList(oldestEntryIndex, logSize));
-		return registerArray(newLogArray);
+	public static boolean restrainLogEntriesCount(int maxEntriesCount, float percentage, LaunchFeedback feedback) {
+		return retain((long) maxEntriesCount * BinaryLaunchLog.RECORD_SIZE,
+				(long) (maxEntriesCount * percentage) * BinaryLaunchLog.RECORD_SIZE, feedback);
 	}
 	
 	/**
-	 * <p>Registers array entries to log file
-	 * @param logEntries - array of entries, in the same format as returned from
-	 * the {@link #readLog()} method.
+	 * Drops the oldest segments of the log until it fits in a certain size,
+	 * if it surpasses a threshold
+	 * @param threshold - size above which the log is reduced <b>in bytes</b>
+	 * @param maxSize - maximum size after reduction <b>in bytes</b>
+	 * @param feedback - to which log errors are reported, once the history lock is released
 	 * @return <code>true</code> if log has been reduced, or <code>false</code> if else.
 	 */
-	public static boolean registerArray(ArrayList<String []> logEntries) {
-		if( !assertLogFile() ) return false;
+	private static boolean retain(long threshold, long maxSize, LaunchFeedback feedback) {
+		BinaryLaunchLog log;
 		try {
-			BufferedWriter writer = new BufferedWriter(
-				new FileWriter(logFile, false) // false for 'write' mode
-			);
-			for( String [] entryArray : logEntries ) {
-				String entryString = String.join(" ", entryArray);
-				writer.write(entryString);
-				writer.newLine();
-			}
-			writer.close();
-			return true;
+			log = openLog();
 		} catch (IOException e) {
-			FatalError.show(lang.get("gui_errmsg_launcher_log_registerfailed"), null, false); // does not exit
+			feedback.warn(lang.get("gui_errmsg_launcher_log_openfailed"));
 			return false;
 		}
-	}
-		
-	/**
-	 *  Creates log file if inexistent. Warns the user with an error dialog if unsuccessful,
-	 *  but does not terminate the program itself for safety reasons (The launcher could still
-	 *  be running some sensitive procedure during the log registry, for example).
-	 *  @return <code>true</code> if successful.
-	 */
-	private static boolean assertLogFile()
-	{
-		new File(LocalResources.datafolder).mkdirs();
-		File f = null;
-		try {
-			f = new File(logFile);
-			f.createNewFile(); // if does not exists, will create an empty one.
-		} catch (IOException e) {
-			FatalError.show(lang.get("gui_errmsg_launcher_log_openfailed"),null,false); // does not exit
-			return false;
+		LaunchHistory history = LaunchHistory.getInstance();
+		boolean failed = false;
+		synchronized( history ) {
+			try {
+				if( log.getSize() < threshold || !log.retain(maxSize) ) return false;
+				history.invalidate();
+				return true;
+			} catch (IOException e) {
+				failed = true;
+			}
 		}
-		return f.exists() && f.isFile();
+		if( failed ) feedback.warn(lang.get("gui_errmsg_launcher_log_registerfailed"));
+		return false;
 	}
 	
 	/**
 	 * Checks whether the log file size exceeds the maximum size allowed, and if so, restraints
 	 * it size by a percentage (both adjustable by the preferences dialog)
+	 * @param feedback - to which log errors are reported
 	 */
-	public static void cleanUp() {
+	public static void cleanUp(LaunchFeedback feedback) {
 		GlobalProperties gp = GlobalProperties.getInstance();
 		String maxLogSizeString = gp.get("maxlogsize");
 		String percentageString = gp.get("logreduction");
@@ -265,7 +292,7 @@ public class LauncherLogManager {
 		try {
 			maxLogSize = Long.parseLong(maxLogSizeString);
 			percentage = (float) Integer.parseInt(percentageString) / 100;
-			restrainLogSize(maxLogSize, percentage);
+			restrainLogSize(maxLogSize, percentage, feedback);
 		} catch( NumberFormatException e ) {
 			LightError.show(e);
 		}
@@ -0,0 +1,60 @@
+package svn;
+
+/**
+ * <p>Snapshot of the progress of a running make, as estimated by a {@link MakeProgressTracker}.
+ * @author guidanoli
+ * @see LaunchProgressListener#makeProgressUpdate(int, MakeProgress)
+ */
+public class MakeProgress {
+
+	private final int units;
+	private final int expectedUnits;
+	private final long elapsedMillis;
+	
+	/**
+	 * Constructs a snapshot
+	 * @param units - units compiled so far
+	 * @param expectedUnits - units compiled by the previous successful make, or 0 if unknown
+	 * @param elapsedMillis - time elapsed since the make started, in milliseconds
+	 */
+	public MakeProgress(int units, int expectedUnits, long elapsedMillis) {
+		this.units = units;
+		this.expectedUnits = expectedUnits;
+		this.elapsedMillis = elapsedMillis;
+	}
+	
+	/**
+	 * @return units compiled so far
+	 */
+	public int getUnits() { return units; }
+	
+	/**
+	 * @return units compiled by the previous successful make, or 0 if unknown
+	 */
+	public int getExpectedUnits() { return expectedUnits; }
+	
+	/**
+	 * @return time elapsed since the make started, in milliseconds
+	 */
+	public long getElapsedMillis() { return elapsedMillis; }
+	
+	/**
+	 * @return estimated percentage complete, never reaching 100 while running,
+	 * or -1 if unknown
+	 */
+	public int getPercent() {
+		if( expectedUnits <= 0 ) return -1;
+		return (int) Math.min(99, units * 100L / expectedUnits);
+	}
+	
+	/**
+	 * Estimates the time left assuming the remaining units are compiled at the
+	 * same rate as the ones compiled so far
+	 * @return estimated time left in milliseconds, or -1 if unknown
+	 */
+	public long getEtaMillis() {
+		if( expectedUnits <= 0 || units <= 0 || units >= expectedUnits ) return -1;
+		return elapsedMillis * ( expectedUnits - units ) / units;
+	}
+	
+}
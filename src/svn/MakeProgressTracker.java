@@ -0,0 +1,84 @@
+package svn;
+
+import java.util.regex.Pattern;
+
+import svn.process.LineListener;
+
+/**
+ * <p>The <code>MakeProgressTracker</code> estimates the progress of a running make by counting
+ * the units (source files) compiled so far, as they are echoed to its output, and comparing
+ * them with the units compiled by the previous successful make of the same branch.
+ * <p>A line counts as a compiled unit if it is:
+ * <ul>
+ * <li>a lone source file name, as echoed by MSVC</li>
+ * <li>a compiler command line with <code>-c</code> and a source file</li>
+ * <li>a quiet build line, such as <code>CC foo.o</code></li>
+ * </ul>
+ * <p>Updates are pushed to the {@link Listener} at most once every {@link #UPDATE_INTERVAL}
+ * milliseconds, so that a flood of output does not flood the user interface.
+ * @author guidanoli
+ * @see LauncherLogManager#getLastMakeUnits()
+ */
+public class MakeProgressTracker implements LineListener {
+
+	/** Minimum time between two updates, in milliseconds */
+	public static final long UPDATE_INTERVAL = 1000;
+	
+	/**
+	 * Receives the progress updates of a make
+	 */
+	public static interface Listener {
+		public void progress(MakeProgress progress);
+	}
+	
+	private static final String sourceFile = "\\S+\\.(c|cc|cpp|cxx|c\\+\\+)";
+	private static final Pattern lonePattern = Pattern.compile("^\\s*" + sourceFile + "\\s*$", Pattern.CASE_INSENSITIVE);
+	private static final Pattern commandPattern = Pattern.compile("\\s-c\\s(.*\\s)?" + sourceFile + "(\\s|$)",
+			Pattern.CASE_INSENSITIVE);
+	private static final Pattern quietPattern = Pattern.compile("^\\s*(CC|CXX)\\s+\\S+");
+	
+	private final int expectedUnits;
+	private final Listener listener;
+	private final long start = System.currentTimeMillis();
+	private int units = 0;
+	private long lastUpdate = 0;
+	
+	/**
+	 * Constructs a tracker for a make that is about to start
+	 * @param expectedUnits - units compiled by the previous successful make, or 0 if unknown
+	 * @param listener - receives the progress updates
+	 */
+	public MakeProgressTracker(int expectedUnits, Listener listener) {
+		this.expectedUnits = expectedUnits;
+		this.listener = listener;
+	}
+	
+	public void line(String line, boolean error) {
+		if( error || !isUnit(line) ) return;
+		MakeProgress progress;
+		synchronized( this ) {
+			units++;
+			long now = System.currentTimeMillis();
+			if( now - lastUpdate < UPDATE_INTERVAL ) return;
+			lastUpdate = now;
+			progress = new MakeProgress(units, expectedUnits, now - start);
+		}
+		listener.progress(progress);
+	}
+	
+	/**
+	 * @return units compiled so far
+	 */
+	public synchronized int getUnits() { return units; }
+	
+	/**
+	 * @param line - line of the standard output
+	 * @return <code>true</code> if it tells that a unit is being compiled
+	 */
+	private static boolean isUnit(String line) {
+		if( line.indexOf('.') < 0 ) return false;
+		return lonePattern.matcher(line).matches() || commandPattern.matcher(line).find() ||
+				quietPattern.matcher(line).find();
+	}
+	
+}
@@ -1,19 +1,38 @@
 package svn;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicReference;
 
-import gui.error.FatalError;
-import gui.error.LightError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import gui.defaults.DefaultLaunchFeedback;
+import svn.error.Diagnostics;
 import svn.error.ErrorListener;
 import svn.error.MakeErrorListener;
+import svn.error.OutputClass;
+import svn.error.OutputClassListener;
+import svn.error.OutputClassifier;
 import svn.error.SetupErrorListener;
+import svn.process.JobLog;
+import svn.process.LineListener;
+import svn.process.ProcessOutput;
+import svn.process.ProcessRunner;
+import svn.wc.WorkingCopyMetadata;
 import vars.Language;
 import vars.properties.GlobalProperties;
 
@@ -35,41 +54,84 @@ public class TortoiseHandler {
 			"mlldad",
 			"mlldadmt"
 	};
+	
+	/** Maximum number of branches probed by a single command */
+	public static final int PROBE_CHUNK_SIZE = 50;
+	/** Number of diagnostics listed when a make fails, errors first */
+	public static final int MAX_DIAGNOSTICS_SHOWN = 20;
 		
-	protected ArrayList<Process> runningProcesses = new ArrayList<Process>();
+	protected List<Process> runningProcesses = Collections.synchronizedList(new ArrayList<Process>());
 	protected String branchDir;
+	protected LaunchFeedback feedback;
+	protected String launchId = null;
 	private Language lang = Language.getInstance();
 	
 	/**
 	 * <p>Creates a Tortoise SVN Handler that operates on a certain branch directory
 	 * @param branchDirectory - branch directory absolute path
+	 * @param feedback - how errors are reported to the user
 	 */
-	public TortoiseHandler(String branchDirectory)
+	public TortoiseHandler(String branchDirectory, LaunchFeedback feedback)
 	{
 		assert(branchDirectory!=null);
 		branchDir = branchDirectory;
+		this.feedback = feedback;
+	}
+	
+	/**
+	 * <p>Creates a Tortoise SVN Handler that operates on a certain branch directory
+	 * and reports errors through dialogs
+	 * @param branchDirectory - branch directory absolute path
+	 */
+	public TortoiseHandler(String branchDirectory)
+	{
+		this(branchDirectory, new DefaultLaunchFeedback());
 	}
 	
 	/**
 	 * Creates a Tortoise SVN Handler that operates on the default branch directory
+	 * @param feedback - how errors are reported to the user
+	 */
+	public TortoiseHandler(LaunchFeedback feedback)
+	{
+		this(GlobalProperties.getInstance().get("path"), feedback);
+	}
+	
+	/**
+	 * Creates a Tortoise SVN Handler that operates on the default branch directory
+	 * and reports errors through dialogs
 	 */
 	public TortoiseHandler()
 	{
-		this(GlobalProperties.getInstance().get("path"));
+		this(new DefaultLaunchFeedback());
+	}
+	
+	/**
+	 * Sets the launch on behalf of which setup and make jobs are run, so that their
+	 * output is logged (see {@link svn.process.JobLog JobLog})
+	 * @param launchId - launch identifier or <code>null</code> not to log job outputs
+	 */
+	public void setLaunchId(String launchId)
+	{
+		this.launchId = launchId;
 	}
 	
 	/**
 	 * <p><code>public boolean isTortoiseDir(String branchName)</code>
 	 * <p>Checks if the folder of name <code>branchName</code> has a .svn folder - that is -
 	 * can be operated via Tortoise SVN functions.
+	 * <p>The working copy database is read in-process, if possible. Otherwise, the
+	 * 'svn info' SVN command is run.
 	 * <p><b>Observation:</b> Does not prompt errors (that is, if branchName isn't a SVN Folder)
 	 * @param branchName folder name from the branch directory absolute path
 	 * @return true if the folder is indeed a Tortoise SVN directory
+	 * @see svn.wc.WorkingCopyMetadata WorkingCopyMetadata
 	 */
 	public boolean isTortoiseDir(String branchName)
 	{
 		File f = openBranchFolder(branchName);
 		if(f==null) return false;
+		if( WorkingCopyMetadata.read(f) != null ) return true;
 		String output = runCmd(f,false,true,"svn", "info");
 		return !(output == null || output.equals(""));
 	}
@@ -78,20 +140,25 @@ public class TortoiseHandler {
 	 * <p><code>public long getRevisionNumber(String branchName)</code>
 	 * <p>Gets last changed revision from local copy. Its effect is the same of the
 	 * 'svn info --show-item last-changed-revision' SVN command executed from any
-	 * branch's root folder.
+	 * branch's root folder, but the working copy database is read in-process, if possible.
 	 * <p>If it could not execute the command, an error message will be prompted,
 	 * not forcing the application to be terminated.
 	 * @param branchName - the name of the branch folder
 	 * @return local copy revision number or -1 if command was unsuccessful
+	 * @see svn.wc.WorkingCopyMetadata WorkingCopyMetadata
 	 */
 	public long getRevisionNumber(String branchName)
 	{
 		File f = openBranchFolder(branchName);
-		if(f==null) LightError.show(lang.get("gui_errmsg_nobranchrootfolder"));
+		if(f==null) feedback.warn(lang.format("gui_errmsg_nobranchrootfolder", branchName));
+		else {
+			WorkingCopyMetadata metadata = WorkingCopyMetadata.read(f);
+			if( metadata != null ) return metadata.getLastChangedRevision();
+		}
 		String output = runCmd(f,true,true,"svn","info","--show-item","last-changed-revision");
 		if( output == null )
 		{
-			LightError.show(lang.get("gui_errmsg_revnumbercmdfailed"));
+			feedback.warn(lang.get("gui_errmsg_revnumbercmdfailed"));
 			return -1; // unsuccessful command
 		}
 		try {
@@ -103,10 +170,140 @@ public class TortoiseHandler {
 		}
 	}
 	
+	/**
+	 * <p><code>public Map&lt;String, WorkingCopyInfo&gt; probe(String... branchNames)</code>
+	 * <p>Probes many branch folders at once, with as few 'svn info --xml' SVN commands as
+	 * possible (one per {@link #PROBE_CHUNK_SIZE} branches), instead of one or more commands
+	 * per branch. The XML output is parsed as a stream. Branches whose working copy database
+	 * can be read in-process are not probed by the command at all.
+	 * <p>Folders that are not working copies, or that do not exist, are reported as invalid.
+	 * Does not prompt errors, except if the command itself could not be run.
+	 * @param branchNames - the names of the branch folders
+	 * @return information of every branch, by branch name
+	 */
+	public Map<String, WorkingCopyInfo> probe(String... branchNames)
+	{
+		Map<String, WorkingCopyInfo> infos = new HashMap<String, WorkingCopyInfo>();
+		List<String> targets = new ArrayList<String>();
+		for( String name : branchNames ) {
+			infos.put(name, new WorkingCopyInfo(name));
+			File f = openBranchFolder(name);
+			if( f == null ) continue;
+			WorkingCopyMetadata metadata = WorkingCopyMetadata.read(f);
+			if( metadata != null )
+				infos.put(name, new WorkingCopyInfo(name, true, metadata.getUrl(), metadata.getLastChangedRevision()));
+			else
+				targets.add(name);
+		}
+		for( int i = 0 ; i < targets.size() ; i += PROBE_CHUNK_SIZE ) {
+			List<String> chunk = targets.subList(i, Math.min(targets.size(), i + PROBE_CHUNK_SIZE));
+			List<String> cmd = new ArrayList<String>();
+			cmd.add("svn");
+			cmd.add("info");
+			cmd.add("--xml");
+			cmd.addAll(chunk);
+			ProcessBuilder pb = new ProcessBuilder(cmd);
+			pb.directory(new File(branchDir));
+			try {
+				ProcessOutput output = new ProcessRunner(pb)
+						.setTailSize(0, getTailSize())
+						.setRegistry(runningProcesses)
+						.run();
+				// targets that are not working copies are only warned about on the error stream
+				parseInfo(output.getOutput(), infos);
+			} catch (Exception e) {
+				feedback.showException(e);
+			}
+		}
+		return infos;
+	}
+	
+	/**
+	 * Parses the output of 'svn info --xml'
+	 * @param xml - command output
+	 * @param infos - map whose entries are replaced by the parsed ones, by entry path
+	 * @throws XMLStreamException if the output is malformed
+	 */
+	private static void parseInfo(String xml, Map<String, WorkingCopyInfo> infos) throws XMLStreamException
+	{
+		if( xml.trim().isEmpty() ) return;
+		XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml));
+		String path = null, url = null;
+		long revision = -1;
+		try {
+			while( reader.hasNext() ) {
+				int event = reader.next();
+				if( event == XMLStreamConstants.START_ELEMENT ) {
+					String element = reader.getLocalName();
+					if( element.equals("entry") ) {
+						path = reader.getAttributeValue(null, "path");
+						url = null;
+						revision = -1;
+					} else if( element.equals("url") ) {
+						url = reader.getElementText();
+					} else if( element.equals("commit") ) {
+						String value = reader.getAttributeValue(null, "revision");
+						try {
+							if( value != null ) revision = Long.parseLong(value);
+						} catch (NumberFormatException e) {
+							revision = -1; // unknown revision, but still a working copy
+						}
+					}
+				} else if( event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("entry") ) {
+					if( path != null && infos.containsKey(path) )
+						infos.put(path, new WorkingCopyInfo(path, true, url, revision));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * <p><code>public String getLocalModificationsHash(String branchName)</code>
+	 * <p>Hashes the local modifications of a branch, as listed by the 'svn status -q'
+	 * SVN command, along with the size and last modification time of each modified file.
+	 * Thus, the hash changes whenever a file is modified, reverted or edited again.
+	 * <p>Since a missing hash only means the branch will be compiled, the command
+	 * failing, or writing anything to the error stream, is not reported.
+	 * @param branchName - the name of the branch folder
+	 * @return hexadecimal hash or <code>null</code> if the branch folder could not be opened
+	 * or its status could not be listed
+	 */
+	public String getLocalModificationsHash(String branchName)
+	{
+		File f = openBranchFolder(branchName);
+		if(f==null) return null;
+		ProcessBuilder pb = new ProcessBuilder("svn","status","-q");
+		pb.directory(f);
+		try {
+			ProcessOutput output = new ProcessRunner(pb)
+					.setTailSize(0, getTailSize())
+					.setRegistry(runningProcesses)
+					.run();
+			if( output.getExitCode() != 0 || !output.getError().isEmpty() ) return null;
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for( String line : output.getOutput().split("\n") )
+			{
+				if( line.length() <= 8 ) continue;
+				File modified = new File(f, line.substring(8).trim());
+				String entry = String.format("%s %d %d\n", line, modified.length(), modified.lastModified());
+				digest.update(entry.getBytes(StandardCharsets.UTF_8));
+			}
+			StringBuilder sb = new StringBuilder();
+			for( byte b : digest.digest() ) sb.append(String.format("%02x", b));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException | IOException | InterruptedException e) {
+			return null;
+		}
+	}
+	
 	/**
 	 * <p>Creates a process that executes a shell command. It serves as a facade
 	 * to many of the function of the {@link TortoiseHandler} class, dealing with
 	 * input, output and error streams.
+	 * <p>Both streams are drained at the same time. The standard output is kept whole,
+	 * since callers parse it, but only the tail of the standard error is kept.
 	 * @param dir - File object to directory where the command will be executed
 	 * @param promptError - if <code>true</code>, on any error output, an error dialog will
 	 * be prompted to the user with the error message along with it
@@ -117,56 +314,47 @@ public class TortoiseHandler {
 	 * has been encountered, the <code>return</code> value will also contain the error output string.
 	 * If a Java Exception is raised, but no error message has been streamed, <code>null</code>
 	 * is returned instead.
+	 * @see svn.process.ProcessRunner ProcessRunner
 	 */
 	protected String runCmd(File dir, boolean promptError, boolean outputError, String... cmd) { 
-    	StringJoiner sj = new StringJoiner("\n");
-    	StringJoiner errsj = new StringJoiner("\n");
 		try {  
-	    	String line;
 	    	ProcessBuilder pb = new ProcessBuilder(cmd);
 	    	pb.directory(dir);
-	    	Process p = pb.start();
-	    	runningProcesses.add(p);
-	    	BufferedReader input = new BufferedReader(new InputStreamReader(p.getInputStream()));
-	    	while ((line = input.readLine()) != null) {
-	    		sj.add(line);
+	    	ProcessOutput output = new ProcessRunner(pb)
+	    			.setTailSize(0, getTailSize())
+	    			.setRegistry(runningProcesses)
+	    			.run();
+	    	if( !output.getError().equals("") && promptError ) {
+	    		String logMessage = formatLogMessage(output);
+	    		feedback.showLog(logMessage);
+	    		return logMessage;
 	    	}
-	    	input.close();
-	    	if(promptError || outputError)
-	    	{
-	    		BufferedReader stdError = new BufferedReader(new InputStreamReader(p.getErrorStream()));
-	    		while ((line = stdError.readLine()) != null) {
-	    			errsj.add(line);
-	    		}
-	    		stdError.close();
-	    		String errout = errsj.toString();
-	    		String stdout = sj.toString();
-    	  		if(!errout.equals("") && promptError) {
-    	    		String logMessage = formatLogMessage(stdout, errout);
-		    		FatalError.showLog(logMessage,null,false);
-					return logMessage;
-		    	}
-			}
+	    	return output.getOutput();
 	    }  
 	    catch (Exception e) {
-	    	FatalError.show(e,null,false);
-	    	if(promptError || outputError)
+	    	feedback.showException(e);
+	    	if(promptError)
 	    	{
-		    	String logMessage = formatLogMessage(sj.toString(), errsj.toString());
-		    	if(!logMessage.equals("") && promptError) {
-		    		FatalError.showLog(logMessage,null,false);
-		    		if( outputError )
-		    			return logMessage;
-		    	}
+	    		String logMessage = formatLogMessage("", "");
+	    		feedback.showLog(logMessage);
+	    		if( outputError )
+	    			return logMessage;
 	    	}
 	    }
-    	return sj.toString();
+    	return "";
 	}
 	
 	/**
-	 * <p><code>boolean runLua(File dir, boolean error, String luaFilePath, String... args)</code>
+	 * <p><code>boolean runLua(File dir, ErrorListener errorListener, Diagnostics diagnostics, LineListener lineListener, String jobName, String luaFilePath, String... args)</code>
 	 * <p>Runs Lua scripts making use of the lua5posix executable that should be on the
 	 * binaries folder of every SVN branch folder.
+	 * <p>Only the tail of the output is kept in memory (see the property 'tailsize'). If a launch
+	 * has been set, the full output is written to the job log of said launch, branch and job.
+	 * <p>The output is classified line by line as it arrives (see {@link OutputClassifier}), and
+	 * the error listener decides, on the first line of each class, whether the job has failed.
+	 * If it has, and the class of said line is fatal (see the property 'fatal'), the job is
+	 * aborted right away, killing its whole process tree. Compiler diagnostics, if asked for,
+	 * are parsed from the output as well, and shown first should the job fail.
 	 * <p><b>Observations:</b>
 	 * <ul>
 	 * <li> Be aware that this will not work in Linux Operating Systems since
@@ -177,76 +365,76 @@ public class TortoiseHandler {
 	 * be thrown.</li>
 	 * </ul>
 	 * <p>Example of usage:
-	 * <p><b><code>String output = runLua(f, true, "bin/vis.lua", "s");</code></b>
+	 * <p><b><code>boolean ok = runLua(f, listener, null, null, "setup", "bin/vis.lua", "s");</code></b>
 	 * <p>Note that <code>f</code> stands for a file object that points to the branch folder and is
 	 * valid. The lua file path, unlike the simple example above, should be safely formatted by
 	 * the {@link Paths.get} function, for the operating system might differ file separators.
 	 * @param dir - file object that points to the directory of a certain branch 
 	 * @param errorListener - {@link ErrorListener}
+	 * @param diagnostics - diagnostics to be parsed from the output or <code>null</code>
+	 * @param lineListener - listener of every output line or <code>null</code>
+	 * @param jobName - job name, as in the job log file name
 	 * @param luaFilePath - lua script relative path from branch directory path
 	 * @param args - list of all arguments provided to the lua script
-	 * @return <code>true</code> if no errors occurred
+	 * @return <code>true</code> if the script exited with code 0 and no output was deemed an
+	 * error by the error listener
 	 * @see TortoiseHandler#openBranchFolder(String)
 	 * @see Paths.get
 	 */
-	protected boolean runLua(File dir, ErrorListener errorListener, String luaFilePath, String... args) {
-		StringJoiner sj = new StringJoiner("\n");
-    	StringJoiner errsj = new StringJoiner("\n");
-		try {  
-	    	String line;
-	    	
-	    	/* source directory, lua file and lua5posix executable path */
-	    	File srcDir = new File(Paths.get(dir.getAbsolutePath(),"src").toString());
-	    	String fullLuaFilePath = Paths.get(srcDir.getAbsolutePath(),"..",luaFilePath).toString();
-	    	String lua5posixPath = Paths.get(srcDir.getAbsolutePath(),"..","bin", "lua5posix.exe").toString();
-	    	
-	    	/* building command string array */
-	    	String [] cmd = new String[args.length+2];
-	    	cmd[0] = lua5posixPath;
-	    	cmd[1] = fullLuaFilePath;
-	    	for(int i = 0; i < args.length; i++) cmd[i+2] = args[i];
-	    	
-	    	/* building process */
-	    	ProcessBuilder pb = new ProcessBuilder(cmd);
-	    	Map<String, String> env = pb.environment();
-	    	env.put("CVS_RSH", "ssh");
-	    	pb.directory(srcDir);
-	    	Process p = pb.start();
-	    	BufferedReader input = new BufferedReader(new InputStreamReader(p.getInputStream()));
-	    	while ((line = input.readLine()) != null) {
-	    		sj.add(line);
-	    	}
-	    	input.close();
-	    	if(errorListener.isHandling())
-	    	{
-	    		BufferedReader stdError = new BufferedReader(new InputStreamReader(p.getErrorStream()));
-	    		while ((line = stdError.readLine()) != null) {
-	    			errsj.add(line);
-	    		}
-	    		stdError.close();
-	    		String logMessage = formatLogMessage(sj.toString(), errsj.toString());
-    	  		if(!logMessage.equals("")) {
-		    		boolean ok = errorListener.handleErrorOutput(logMessage);
-		    		if( !ok ) FatalError.showLog(logMessage, null, false);
-		    		return ok;
-		    	}
+	protected boolean runLua(File dir, final ErrorListener errorListener, Diagnostics diagnostics,
+			LineListener lineListener, String jobName, String luaFilePath, String... args) {
+		/* source directory, lua file and lua5posix executable path */
+		File srcDir = new File(Paths.get(dir.getAbsolutePath(),"src").toString());
+		String fullLuaFilePath = Paths.get(srcDir.getAbsolutePath(),"..",luaFilePath).toString();
+		String lua5posixPath = Paths.get(srcDir.getAbsolutePath(),"..","bin", "lua5posix.exe").toString();
+		
+		/* building command string array */
+		String [] cmd = new String[args.length+2];
+		cmd[0] = lua5posixPath;
+		cmd[1] = fullLuaFilePath;
+		for(int i = 0; i < args.length; i++) cmd[i+2] = args[i];
+		
+		/* building process */
+		ProcessBuilder pb = new ProcessBuilder(cmd);
+		Map<String, String> env = pb.environment();
+		env.put("CVS_RSH", "ssh");
+		pb.directory(srcDir);
+		
+		/* deciding on failure as soon as the output tells, and aborting if it is fatal */
+		final ProcessRunner runner = new ProcessRunner(pb);
+		final AtomicReference<OutputClass> failure = new AtomicReference<OutputClass>();
+		OutputClassifier classifier = new OutputClassifier(new OutputClassListener() {
+			public void classified(OutputClass outputClass, String line, long lineNumber) {
+				if( failure.get() != null || !errorListener.isHandling() || !errorListener.isError(outputClass) ) return;
+				failure.compareAndSet(null, outputClass);
+				if( GlobalProperties.fatalOutputProperty.isFatal(outputClass) )
+					runner.abort(String.format("%s (line %d): %s", outputClass.getLabel(), lineNumber, line));
 			}
-	    	return true;
+		});
+		try {  
+	    	JobLog jobLog = null;
+	    	if( launchId != null )
+	    		jobLog = new JobLog(launchId, dir.getName(), jobName,
+	    				JobLog.Compression.fromLabel(GlobalProperties.getInstance().get("logcompression")));
+	    	ProcessOutput output = runner
+	    			.setTailSize(getTailSize())
+	    			.setJobLog(jobLog)
+	    			.addLineListener(classifier)
+	    			.addLineListener(diagnostics)
+	    			.addLineListener(lineListener)
+	    			.setRegistry(runningProcesses)
+	    			.run();
+	    	if( failure.get() == null && output.getExitCode() == 0 ) return true;
+	    	feedback.showLog(formatLogMessage(diagnostics) + formatLogMessage(output, classifier));
+	    	return false;
 	    }  
 	    catch (Exception e) {
 	    	// Show Java error
-//	    	FatalError.show(e,null,false);
+	    	feedback.showException(e);
 	    	// but don't forget to show Lua error too
-	    	if(errorListener.isHandling())
-	    	{
-		    	String logMessage = formatLogMessage(sj.toString(), errsj.toString());
-		    	if(!logMessage.equals("")) {
-		    		boolean ok = errorListener.handleErrorOutput(logMessage);
-		    		if( !ok ) FatalError.showLog(logMessage, null, false);
-		    		return ok;
-		    	}
-	    	}
-	    	return true;
+	    	if( failure.get() != null )
+	    		feedback.showLog(formatLogMessage(diagnostics) + formatLogMessage(classifier) + formatLogMessage("", ""));
+	    	return false;
 	    }
 	}
 	
@@ -254,6 +442,38 @@ public class TortoiseHandler {
 		return String.format("Error messages:\n%s\nFull output:\n%s", stderr, stdout);
 	}
 	
+	private String formatLogMessage(ProcessOutput output) {
+		if( !output.isTruncated() ) return formatLogMessage(output.getOutput(), output.getError());
+		String logMessage = String.format("Error messages (tail):\n%s\nOutput (tail):\n%s", output.getError(), output.getOutput());
+		if( output.getOutputFile() != null )
+			logMessage += String.format("\nFull output in %s", output.getOutputFile().getAbsolutePath());
+		return logMessage;
+	}
+	
+	private String formatLogMessage(ProcessOutput output, OutputClassifier classifier) {
+		String logMessage = formatLogMessage(classifier) + formatLogMessage(output);
+		if( output.isAborted() ) logMessage = String.format("Aborted on %s\n", output.getAbortReason()) + logMessage;
+		else if( output.getExitCode() != 0 ) logMessage = String.format("Exited with code %d\n", output.getExitCode()) + logMessage;
+		return logMessage;
+	}
+	
+	private String formatLogMessage(Diagnostics diagnostics) {
+		if( diagnostics == null || diagnostics.isEmpty() ) return "";
+		return String.format("Diagnostics:\n%s\n", diagnostics.getSummary(MAX_DIAGNOSTICS_SHOWN));
+	}
+	
+	private String formatLogMessage(OutputClassifier classifier) {
+		return String.format("Detected:\n%s\n", classifier.getSummary());
+	}
+	
+	/**
+	 * @return number of characters of each output stream kept in memory,
+	 * as set by the property 'tailsize' (in KB)
+	 */
+	private int getTailSize() {
+		return Integer.parseInt(GlobalProperties.getInstance().get("tailsize")) * 1024;
+	}
+	
 	/**
 	 * <code>private File openBranchFolder(String branchName)</code>
 	 * <p>Wrapper function that opens the branch folder through its folder name,
@@ -291,9 +511,12 @@ public class TortoiseHandler {
 	public boolean setup(String branchName, SetupErrorListener listener)
 	{
 		File f = openBranchFolder(branchName);
-		if(f==null) FatalError.show(lang.get("gui_errmsg_nobranchrootfolder")); //exits
+		if(f==null) {
+			feedback.warn(lang.format("gui_errmsg_nobranchrootfolder", branchName));
+			return false;
+		}
 		String setupLuaPath = Paths.get("bin", "vis.lua").toString();
-		return runLua(f, listener, setupLuaPath, "s");
+		return runLua(f, listener, null, null, "setup", setupLuaPath, "s");
 	}
 	
 	/**
@@ -306,12 +529,30 @@ public class TortoiseHandler {
 	 * @return <code>true</code> on success and <code>false</code> on error
 	 */
 	public boolean make(String branchName, MakeErrorListener listener)
+	{
+		return make(branchName, listener, null);
+	}
+	
+	/**
+	 * Compiles a branch, tracking its progress
+	 * @param branchName - branch folder name
+	 * @param listener - make error listener
+	 * @param progressTracker - tracker of the make progress or <code>null</code>
+	 * @return <code>true</code> if compiled successfully
+	 */
+	public boolean make(String branchName, MakeErrorListener listener, MakeProgressTracker progressTracker)
 	{
 		File f = openBranchFolder(branchName);
-		if(f==null) FatalError.show(lang.get("gui_errmsg_nobranchrootfolder")); //exits
+		if(f==null) {
+			feedback.warn(lang.format("gui_errmsg_nobranchrootfolder", branchName));
+			return false;
+		}
 		String setupLuaPath = Paths.get("bin", "vis.lua").toString();
 		String command = GlobalProperties.getInstance().get("makecmd");
-		return runLua(f, listener, setupLuaPath, command);
+		Diagnostics diagnostics = listener.newDiagnostics();
+		boolean ok = runLua(f, listener, diagnostics, progressTracker, "make", setupLuaPath, command);
+		if( launchId != null ) diagnostics.save(launchId, branchName);
+		return ok;
 	}
 	
 	/**
@@ -320,6 +561,8 @@ public class TortoiseHandler {
 	 * branch source folder. 
 	 * <p>If it could not clean up the branch after all the tried, an error message will be prompted,
 	 * but not forcing the application to be terminated.
+	 * <p>If the working copy database tells that the branch is neither locked nor has pending
+	 * work, there is nothing to clean up and no command is run.
 	 * @param branchName - the name of the branch folder
 	 * @param persistence - maximum number of tries until clean up job runs without errors
 	 * @return <code>true</code> on success and <code>false</code> if failed all #persistence times
@@ -327,7 +570,11 @@ public class TortoiseHandler {
 	public boolean cleanUp(String branchName, int persistence)
 	{
 		File f = openBranchFolder(branchName);
-		if(f==null) LightError.show(lang.get("gui_errmsg_nobranchrootfolder"));
+		if(f==null) feedback.warn(lang.format("gui_errmsg_nobranchrootfolder", branchName));
+		else {
+			WorkingCopyMetadata metadata = WorkingCopyMetadata.read(f);
+			if( metadata != null && !metadata.isLocked() && !metadata.needsCleanup() ) return true;
+		}
 		for(int i = 0 ; i < persistence ; i++) {
 			boolean lastCleanUp = i == persistence - 1;
 			String output = runCmd(f,lastCleanUp,true,"svn", "cleanup");
@@ -338,14 +585,16 @@ public class TortoiseHandler {
 	
 	/**
 	 * <p><code>public static void killProcesses()</code>
-	 * <p>Kills all currently running processes
+	 * <p>Kills all currently running processes, along with the processes they have started
 	 * <p>May be unsafe and leave objects in an unstable state
 	 */
 	public void killProcesses()
 	{
-		for( Process p : runningProcesses )
-			if( p.isAlive() ) p.destroy();
-		runningProcesses.clear();
+		synchronized( runningProcesses ) {
+			for( Process p : runningProcesses )
+				if( p.isAlive() ) ProcessRunner.destroyTree(p);
+			runningProcesses.clear();
+		}
 	}
 	
 }
@@ -0,0 +1,57 @@
+package svn;
+
+/**
+ * <p>The <code>WorkingCopyInfo</code> class holds what is known of a branch folder as a
+ * working copy, as probed by {@link TortoiseHandler#probe(String...) probe}.
+ * @author guidanoli
+ */
+public class WorkingCopyInfo {
+
+	private final String branchName;
+	private final boolean valid;
+	private final String url;
+	private final long lastChangedRevision;
+	
+	/**
+	 * Constructs the information of a branch folder
+	 * @param branchName - branch folder name
+	 * @param valid - if the folder is a working copy
+	 * @param url - repository URL or <code>null</code> if unknown
+	 * @param lastChangedRevision - last changed revision or -1 if unknown
+	 */
+	public WorkingCopyInfo(String branchName, boolean valid, String url, long lastChangedRevision) {
+		this.branchName = branchName;
+		this.valid = valid;
+		this.url = url;
+		this.lastChangedRevision = lastChangedRevision;
+	}
+	
+	/**
+	 * Constructs the information of a folder that is not a working copy
+	 * @param branchName - branch folder name
+	 */
+	public WorkingCopyInfo(String branchName) {
+		this(branchName, false, null, -1);
+	}
+	
+	/**
+	 * @return branch folder name
+	 */
+	public String getBranchName() { return branchName; }
+	
+	/**
+	 * @return <code>true</code> if the folder is a working copy
+	 */
+	public boolean isValid() { return valid; }
+	
+	/**
+	 * @return repository URL or <code>null</code> if unknown
+	 */
+	public String getUrl() { return url; }
+	
+	/**
+	 * @return last changed revision or -1 if unknown
+	 */
+	public long getLastChangedRevision() { return lastChangedRevision; }
+	
+}
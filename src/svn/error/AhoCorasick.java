@@ -0,0 +1,88 @@
+package svn.error;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * <p>The <code>AhoCorasick</code> automaton finds every occurrence of a set of literal
+ * signatures in a text, in a single pass, no matter how many signatures there are.
+ * <p>It is immutable once built, and thus, can be shared among threads.
+ * @author guidanoli
+ * @see OutputClassifier
+ */
+class AhoCorasick {
+
+	/**
+	 * A state of the automaton
+	 */
+	private static class Node {
+		final Map<Character, Node> next = new HashMap<Character, Node>();
+		Node fail;
+		final List<Integer> matches = new ArrayList<Integer>(1); // own and inherited by fail links
+	}
+	
+	private final Node root = new Node();
+	private final int count;
+	
+	/**
+	 * Builds the automaton
+	 * @param signatures - literal signatures, identified by their indexes
+	 */
+	AhoCorasick(String... signatures) {
+		count = signatures.length;
+		for( int i = 0 ; i < signatures.length ; i++ ) {
+			Node node = root;
+			for( char c : signatures[i].toCharArray() ) {
+				Node child = node.next.get(c);
+				if( child == null ) {
+					child = new Node();
+					node.next.put(c, child);
+				}
+				node = child;
+			}
+			node.matches.add(i);
+		}
+		// breadth first, so that fail links point to states already linked
+		Queue<Node> queue = new ArrayDeque<Node>();
+		root.fail = root;
+		for( Node child : root.next.values() ) {
+			child.fail = root;
+			queue.add(child);
+		}
+		while( !queue.isEmpty() ) {
+			Node node = queue.poll();
+			for( Map.Entry<Character, Node> edge : node.next.entrySet() ) {
+				Node child = edge.getValue();
+				Node fail = node.fail;
+				while( fail != root && !fail.next.containsKey(edge.getKey()) ) fail = fail.fail;
+				Node target = fail.next.get(edge.getKey());
+				child.fail = target != null && target != child ? target : root;
+				child.matches.addAll(child.fail.matches);
+				queue.add(child);
+			}
+		}
+	}
+	
+	/**
+	 * Finds which signatures occur in a text
+	 * @param text - text to be searched
+	 * @return for each signature index, whether it occurs
+	 */
+	boolean [] find(CharSequence text) {
+		boolean [] found = new boolean[count];
+		Node node = root;
+		for( int i = 0 ; i < text.length() ; i++ ) {
+			char c = text.charAt(i);
+			Node next;
+			while( ( next = node.next.get(c) ) == null && node != root ) node = node.fail;
+			node = next == null ? root : next;
+			for( int match : node.matches ) found[match] = true;
+		}
+		return found;
+	}
+	
+}
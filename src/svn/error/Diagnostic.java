@@ -0,0 +1,120 @@
+package svn.error;
+
+/**
+ * <p>A compiler or linker diagnostic, as parsed from a line of make output by {@link Diagnostics}.
+ * <p>Two diagnostics are equal if they only differ in how many times they were repeated.
+ * @author guidanoli
+ */
+public class Diagnostic {
+
+	public static enum Severity {
+		FATAL("fatal error"),
+		ERROR("error"),
+		WARNING("warning"),
+		NOTE("note");
+		
+		private final String label;
+		private Severity(String label) { this.label = label; }
+		
+		/**
+		 * @return label, as output by compilers
+		 */
+		public String getLabel() { return label; }
+		
+		/**
+		 * @param label - severity label, in any case
+		 * @return severity of said label or <code>null</code> if unknown
+		 */
+		public static Severity fromLabel(String label) {
+			for( Severity severity : values() )
+				if( severity.label.equalsIgnoreCase(label) ) return severity;
+			return null;
+		}
+		
+		/**
+		 * @return <code>true</code> if it fails the make
+		 */
+		public boolean isError() { return this == FATAL || this == ERROR; }
+	}
+	
+	private final Severity severity;
+	private final String file;
+	private final int line;
+	private final int column;
+	private final String code;
+	private final String message;
+	private int repeats = 1;
+	
+	/**
+	 * Constructs a diagnostic
+	 * @param severity - severity
+	 * @param file - source or object file ("" if unknown)
+	 * @param line - line number (0 if unknown)
+	 * @param column - column number (0 if unknown)
+	 * @param code - diagnostic code, such as C2065 ("" if none)
+	 * @param message - message
+	 */
+	public Diagnostic(Severity severity, String file, int line, int column, String code, String message) {
+		this.severity = severity;
+		this.file = file;
+		this.line = line;
+		this.column = column;
+		this.code = code;
+		this.message = message;
+	}
+	
+	public Severity getSeverity() { return severity; }
+	
+	public String getFile() { return file; }
+	
+	public int getLine() { return line; }
+	
+	public int getColumn() { return column; }
+	
+	public String getCode() { return code; }
+	
+	public String getMessage() { return message; }
+	
+	/**
+	 * @return number of times it was output
+	 */
+	public int getRepeats() { return repeats; }
+	
+	void setRepeats(int repeats) { this.repeats = repeats; }
+	
+	/**
+	 * Formats the diagnostic as <code>file(line,column): severity code: message</code>
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder(file);
+		if( line > 0 ) {
+			sb.append('(').append(line);
+			if( column > 0 ) sb.append(',').append(column);
+			sb.append(')');
+		}
+		if( sb.length() > 0 ) sb.append(": ");
+		sb.append(severity.getLabel());
+		if( !code.isEmpty() ) sb.append(' ').append(code);
+		sb.append(": ").append(message);
+		if( repeats > 1 ) sb.append(String.format(" (x%d)", repeats));
+		return sb.toString();
+	}
+	
+	public boolean equals(Object obj) {
+		if( !(obj instanceof Diagnostic) ) return false;
+		Diagnostic other = (Diagnostic) obj;
+		return severity == other.severity && line == other.line && column == other.column &&
+				file.equals(other.file) && code.equals(other.code) && message.equals(other.message);
+	}
+	
+	public int hashCode() {
+		int hash = severity.hashCode();
+		hash = 31 * hash + file.hashCode();
+		hash = 31 * hash + line;
+		hash = 31 * hash + column;
+		hash = 31 * hash + code.hashCode();
+		hash = 31 * hash + message.hashCode();
+		return hash;
+	}
+	
+}
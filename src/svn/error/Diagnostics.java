@@ -0,0 +1,250 @@
+package svn.error;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import svn.process.LineListener;
+import vars.LocalResources;
+
+/**
+ * <p>The <code>Diagnostics</code> class parses make output into {@link Diagnostic} records, line
+ * by line as it is drained, so that a failed make can be triaged without going through its
+ * whole output. The following formats are recognized:
+ * <ul>
+ * <li><b>GCC/Clang</b> - <code>file:line[:column]: severity: message</code></li>
+ * <li><b>MSVC</b> - <code>file(line[,column]) : severity [code]: message</code></li>
+ * <li><b>MSVC linker</b> - <code>file : severity code: message</code></li>
+ * <li><b>GNU linker</b> - <code>file:[line:] undefined reference to symbol</code></li>
+ * </ul>
+ * <p>Repeated diagnostics (e.g. the same header warning in every unit) are stored once, with
+ * their number of repeats. Only the first {@link #getCapacity() capacity} distinct diagnostics
+ * are stored, although every one of them is counted. Diagnostics past the capacity are only
+ * remembered by their hash code, so that their repeats are not counted as distinct ones.
+ * <p>Diagnostics are saved along with the job logs of their launch.
+ * @author guidanoli
+ * @see MakeErrorListener#newDiagnostics()
+ */
+public class Diagnostics implements LineListener {
+
+	private static final Pattern gccPattern = Pattern.compile(
+			"^(.+?):(\\d+)(?::(\\d+))?:\\s*(fatal error|error|warning|note):\\s*(.*)$", Pattern.CASE_INSENSITIVE);
+	private static final Pattern msvcPattern = Pattern.compile(
+			"^\\s*(.+?)\\((\\d+)(?:,(\\d+))?\\)\\s*:\\s*(fatal error|error|warning|note)\\s*([A-Z]+\\d+)?\\s*:\\s*(.*)$",
+			Pattern.CASE_INSENSITIVE);
+	private static final Pattern msvcLinkerPattern = Pattern.compile(
+			"^\\s*(.+?)\\s*:\\s*(fatal error|error|warning)\\s+([A-Z]+\\d+)\\s*:\\s*(.*)$", Pattern.CASE_INSENSITIVE);
+	private static final Pattern gnuLinkerPattern = Pattern.compile(
+			"^(.+?):(?:(\\d+):)?(?:\\s*\\(.*?\\):)?\\s*(undefined reference to .*)$");
+	
+	private static final String extension = ".diag";
+	private static final String headerPrefix = "#";
+	
+	private final int capacity;
+	private final Map<Diagnostic, Diagnostic> stored = new LinkedHashMap<Diagnostic, Diagnostic>();
+	private final Map<Diagnostic.Severity, Integer> counts = new EnumMap<Diagnostic.Severity, Integer>(Diagnostic.Severity.class);
+	private final Set<Integer> droppedHashes = new HashSet<Integer>(); // of the diagnostics not stored
+	private int distinctCount = 0;
+	private int droppedCount = 0;
+	
+	/**
+	 * Constructs an empty set of diagnostics
+	 * @param capacity - maximum number of distinct diagnostics stored
+	 */
+	public Diagnostics(int capacity) {
+		this.capacity = capacity;
+	}
+	
+	/**
+	 * Parses a line of output, storing its diagnostic, if any
+	 * @param line - output line
+	 * @param error - if it comes from the standard error stream
+	 */
+	public void line(String line, boolean error) {
+		Diagnostic diagnostic = parse(line);
+		if( diagnostic != null ) add(diagnostic);
+	}
+	
+	/**
+	 * Stores a diagnostic or, if it is a repeat, counts it
+	 * @param diagnostic - diagnostic
+	 */
+	public synchronized void add(Diagnostic diagnostic) {
+		Integer count = counts.get(diagnostic.getSeverity());
+		counts.put(diagnostic.getSeverity(), ( count == null ? 0 : count ) + diagnostic.getRepeats());
+		Diagnostic previous = stored.get(diagnostic);
+		if( previous != null ) {
+			previous.setRepeats(previous.getRepeats() + diagnostic.getRepeats());
+			return;
+		}
+		if( stored.size() < capacity ) {
+			stored.put(diagnostic, diagnostic);
+			distinctCount++;
+		} else if( droppedHashes.add(diagnostic.hashCode()) ) {
+			distinctCount++;
+			droppedCount++;
+		}
+	}
+	
+	/**
+	 * @return maximum number of distinct diagnostics stored
+	 */
+	public int getCapacity() { return capacity; }
+	
+	/**
+	 * @return stored diagnostics, in the order they were first output
+	 */
+	public synchronized List<Diagnostic> getDiagnostics() {
+		return new ArrayList<Diagnostic>(stored.keySet());
+	}
+	
+	/**
+	 * @param severity - severity
+	 * @return number of diagnostics of said severity output, counting repeats and
+	 * diagnostics not stored
+	 */
+	public synchronized int getCount(Diagnostic.Severity severity) {
+		Integer count = counts.get(severity);
+		return count == null ? 0 : count;
+	}
+	
+	/**
+	 * @return number of distinct diagnostics that were not stored for lack of capacity
+	 */
+	public synchronized int getDroppedCount() { return droppedCount; }
+	
+	/**
+	 * @return <code>true</code> if no diagnostic was output
+	 */
+	public synchronized boolean isEmpty() { return distinctCount == 0; }
+	
+	/**
+	 * Summarizes the diagnostics, errors first
+	 * @param max - maximum number of diagnostics listed
+	 * @return counts by severity followed by up to <code>max</code> diagnostics, one per line
+	 */
+	public synchronized String getSummary(int max) {
+		StringBuilder sb = new StringBuilder(getCountsString());
+		int listed = 0;
+		for( boolean errors : new boolean[] { true, false } ) {
+			for( Diagnostic diagnostic : stored.keySet() ) {
+				if( diagnostic.getSeverity().isError() != errors ) continue;
+				if( listed++ == max ) return sb.append("\n...").toString();
+				sb.append('\n').append(diagnostic);
+			}
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * @return number of diagnostics of each severity, as in <code>2 error, 5 warning</code>
+	 */
+	private String getCountsString() {
+		StringBuilder sb = new StringBuilder();
+		for( Diagnostic.Severity severity : Diagnostic.Severity.values() ) {
+			if( sb.length() > 0 ) sb.append(", ");
+			sb.append(getCount(severity)).append(' ').append(severity.getLabel());
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Parses a line of output
+	 * @param line - output line
+	 * @return diagnostic or <code>null</code> if the line is not a diagnostic
+	 */
+	public static Diagnostic parse(String line) {
+		// most lines are not diagnostics, so spare them the regular expressions
+		if( line.indexOf(':') < 0 ) return null;
+		String lower = line.toLowerCase();
+		if( lower.contains("undefined reference to") ) {
+			Matcher m = gnuLinkerPattern.matcher(line);
+			if( m.matches() )
+				return new Diagnostic(Diagnostic.Severity.ERROR, m.group(1), parseInt(m.group(2)), 0, "", m.group(3));
+		}
+		if( !lower.contains("error") && !lower.contains("warning") && !lower.contains("note") ) return null;
+		Matcher m = msvcPattern.matcher(line);
+		if( m.matches() )
+			return new Diagnostic(Diagnostic.Severity.fromLabel(m.group(4)), m.group(1).trim(), parseInt(m.group(2)),
+					parseInt(m.group(3)), m.group(5) == null ? "" : m.group(5), m.group(6));
+		m = gccPattern.matcher(line);
+		if( m.matches() )
+			return new Diagnostic(Diagnostic.Severity.fromLabel(m.group(4)), m.group(1).trim(), parseInt(m.group(2)),
+					parseInt(m.group(3)), "", m.group(5));
+		m = msvcLinkerPattern.matcher(line);
+		if( m.matches() )
+			return new Diagnostic(Diagnostic.Severity.fromLabel(m.group(2)), m.group(1), 0, 0, m.group(3), m.group(4));
+		return null;
+	}
+	
+	private static int parseInt(String str) {
+		if( str == null ) return 0;
+		try {
+			return Integer.parseInt(str);
+		} catch( NumberFormatException e ) {
+			return 0;
+		}
+	}
+	
+	/* ***********
+	 * PERSISTENCE
+	 * *********** */
+	
+	/**
+	 * @param launchId - launch identifier
+	 * @param branchName - branch folder name
+	 * @return file where the diagnostics of a branch on a launch are saved
+	 */
+	public static File getFile(String launchId, String branchName) {
+		return Paths.get(LocalResources.joblogfolder, launchId, branchName + extension).toFile();
+	}
+	
+	/**
+	 * <p>Saves the stored diagnostics along with the job logs of a launch. Each diagnostic
+	 * is saved in a line, as tab-separated fields:
+	 * <p><code>severity, file, line, column, code, repeats, message</code>
+	 * <p>IO errors do not interrupt the launch, since diagnostics are merely informative.
+	 * @param launchId - launch identifier
+	 * @param branchName - branch folder name
+	 * @return <code>true</code> if saved successfully
+	 */
+	public synchronized boolean save(String launchId, String branchName) {
+		Path path = getFile(launchId, branchName).toPath();
+		try {
+			Files.createDirectories(path.getParent());
+			try( BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8) ) {
+				writer.write(String.format("%s %s; %d distinct, %d dropped", headerPrefix, getCountsString(),
+						distinctCount, droppedCount));
+				writer.newLine();
+				for( Diagnostic d : stored.keySet() ) {
+					writer.write(String.join("\t", d.getSeverity().name(), clean(d.getFile()),
+							Integer.toString(d.getLine()), Integer.toString(d.getColumn()), clean(d.getCode()),
+							Integer.toString(d.getRepeats()), clean(d.getMessage())));
+					writer.newLine();
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+			return false;
+		}
+	}
+	
+	private static String clean(String field) {
+		return field.replace('\t', ' ');
+	}
+	
+}
@@ -3,15 +3,18 @@ package svn.error;
 public interface ErrorListener {
 
 	/**
-	 * Handle error output 
-	 * @param output - output string
-	 * @return <code>true</code> if error should be output
+	 * Decides whether output of a certain class means the job has failed.
+	 * It is called as soon as the first line of said class is output,
+	 * while the job is still running.
+	 * @param outputClass - class of an output line
+	 * @return <code>true</code> if the job has failed and its output should be shown
+	 * @see OutputClassifier
 	 */
-	public boolean handleErrorOutput(String output);
+	public boolean isError(OutputClass outputClass);
 	
 	/**
 	 * @return <code>true</code> if it is willing to handle errors.
-	 * If not, {@link #handleErrorOutput(String)} will not be called.
+	 * If not, {@link #isError(OutputClass)} will not be called.
 	 */
 	public boolean isHandling();
 	
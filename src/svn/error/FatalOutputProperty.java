@@ -0,0 +1,40 @@
+package svn.error;
+
+import vars.properties.bool.LongBooleanProperty;
+
+/**
+ * <p>Stores which classes of output are fatal, that is, which classes of output
+ * doom a job as soon as they appear, so that there is no point in letting it run
+ * any longer. Fatal output only aborts a job if its error listener deems it an error.
+ * <p>There is one flag per {@link OutputClass}, in declaration order.
+ * @author guidanoli
+ * @see ErrorListener#isError(OutputClass)
+ */
+public class FatalOutputProperty extends LongBooleanProperty {
+
+	public FatalOutputProperty() {
+		super(getDefaults(), "fatal");
+	}
+	
+	/**
+	 * @param outputClass - output class
+	 * @return <code>true</code> if a job should be aborted on output of said class
+	 */
+	public boolean isFatal(OutputClass outputClass) {
+		return isEnabled(outputClass.ordinal());
+	}
+	
+	/**
+	 * A job will hardly recover from certificate, lock, authentication or network errors.
+	 * Other errors are reported at the end, all at once, so that they can all be fixed.
+	 */
+	private static boolean [] getDefaults() {
+		boolean [] defaults = new boolean[OutputClass.values().length];
+		defaults[OutputClass.CERTIFICATE.ordinal()] = true;
+		defaults[OutputClass.LOCK.ordinal()] = true;
+		defaults[OutputClass.AUTHENTICATION.ordinal()] = true;
+		defaults[OutputClass.NETWORK.ordinal()] = true;
+		return defaults;
+	}
+	
+}
@@ -2,12 +2,22 @@ package svn.error;
 
 public class MakeErrorListener implements ErrorListener {
 	
+	/** Maximum number of distinct diagnostics stored per branch */
+	public static final int MAX_DIAGNOSTICS = 500;
+	
 	private boolean isHandling = true;
 	
-	public boolean handleErrorOutput(String output) { return true; }
+	public boolean isError(OutputClass outputClass) {
+		return outputClass == OutputClass.COMPILER_ERROR || outputClass == OutputClass.LINKER_ERROR;
+	}
 
 	public boolean isHandling() { return isHandling; }
 	
 	public void setHandling(boolean isHandling) { this.isHandling = isHandling; }
+	
+	/**
+	 * @return empty diagnostics of a make job, to be parsed from its output
+	 */
+	public Diagnostics newDiagnostics() { return new Diagnostics(MAX_DIAGNOSTICS); }
 
 }
@@ -0,0 +1,32 @@
+package svn.error;
+
+/**
+ * <p>Classes of job output lines, as recognized by the {@link OutputClassifier}.
+ * @author guidanoli
+ * @see ErrorListener#isError(OutputClass)
+ */
+public enum OutputClass {
+
+	/** A server certificate could not be validated or is missing */
+	CERTIFICATE,
+	/** The working copy is locked */
+	LOCK,
+	/** The update left conflicts */
+	CONFLICT,
+	/** The credentials were not accepted */
+	AUTHENTICATION,
+	/** The server could not be reached */
+	NETWORK,
+	/** Any other SVN error */
+	SVN_ERROR,
+	/** The compiler reported an error */
+	COMPILER_ERROR,
+	/** The linker reported an error */
+	LINKER_ERROR;
+	
+	/**
+	 * @return lower case name, as shown to the user
+	 */
+	public String getLabel() { return name().toLowerCase(); }
+	
+}
@@ -0,0 +1,19 @@
+package svn.error;
+
+/**
+ * <p>Receives the lines of a job output classified by an {@link OutputClassifier},
+ * as soon as they are output.
+ * @author guidanoli
+ */
+public interface OutputClassListener {
+
+	/**
+	 * Signals that a line of a certain class has been output. A line may
+	 * belong to more than one class.
+	 * @param outputClass - class of the line
+	 * @param line - output line
+	 * @param lineNumber - number of the line in the whole output, from 1
+	 */
+	public void classified(OutputClass outputClass, String line, long lineNumber);
+	
+}
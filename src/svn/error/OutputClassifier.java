@@ -0,0 +1,163 @@
+package svn.error;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import svn.process.LineListener;
+
+/**
+ * <p>The <code>OutputClassifier</code> classifies the output of a job line by line, as it is
+ * drained, so that decisions can be made while the job is still running, instead of scanning
+ * the whole output once it has finished.
+ * <p>Every rule has a literal trigger. All triggers are searched at once, in a single pass
+ * over the line, by an {@link AhoCorasick} automaton. Rules that need more than their trigger
+ * have a precompiled regular expression as well, which is only tried on lines where the trigger
+ * was found. Triggers are matched ignoring case.
+ * <p>Every classified line is reported to the {@link OutputClassListener}, if any.
+ * @author guidanoli
+ * @see OutputClass
+ */
+public class OutputClassifier implements LineListener {
+
+	/**
+	 * A classification rule
+	 */
+	private static class Rule {
+		final OutputClass outputClass;
+		final String trigger;
+		final Pattern pattern;
+		Rule(OutputClass outputClass, String trigger, String regex) {
+			this.outputClass = outputClass;
+			this.trigger = trigger;
+			this.pattern = regex == null ? null : Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+		}
+	}
+	
+	private static final Rule [] rules = {
+			new Rule(OutputClass.CERTIFICATE, "vis arc install-certificate", null),
+			new Rule(OutputClass.CERTIFICATE, "error validating server certificate", null),
+			new Rule(OutputClass.CERTIFICATE, "accept (p)ermanently", null),
+			new Rule(OutputClass.LOCK, "e155004", null),
+			new Rule(OutputClass.LOCK, "e155037", null),
+			new Rule(OutputClass.LOCK, "is already locked", null),
+			new Rule(OutputClass.CONFLICT, "e155015", null),
+			new Rule(OutputClass.CONFLICT, "tree conflict", null),
+			new Rule(OutputClass.CONFLICT, "summary of conflicts", null),
+			new Rule(OutputClass.AUTHENTICATION, "e170001", null),
+			new Rule(OutputClass.AUTHENTICATION, "e215004", null),
+			new Rule(OutputClass.AUTHENTICATION, "authentication failed", null),
+			new Rule(OutputClass.NETWORK, "e175002", null),
+			new Rule(OutputClass.NETWORK, "e170013", null),
+			new Rule(OutputClass.NETWORK, "e731001", null),
+			new Rule(OutputClass.NETWORK, "unable to connect", null),
+			new Rule(OutputClass.SVN_ERROR, "svn: e", "svn: E\\d{6}"),
+			new Rule(OutputClass.COMPILER_ERROR, "error",
+					"(:\\d+(:\\d+)?: (fatal )?error\\b)|(\\(\\d+\\)\\s*:\\s*(fatal )?error\\b)|(\\berror C\\d{4}\\b)"),
+			new Rule(OutputClass.LINKER_ERROR, "lnk", "\\bLNK\\d{4}\\b"),
+			new Rule(OutputClass.LINKER_ERROR, "undefined reference to", null),
+			new Rule(OutputClass.LINKER_ERROR, "unresolved external symbol", null),
+	};
+	
+	private static final AhoCorasick triggers;
+	static {
+		String [] literals = new String[rules.length];
+		for( int i = 0 ; i < rules.length ; i++ ) literals[i] = rules[i].trigger.toLowerCase(Locale.ROOT);
+		triggers = new AhoCorasick(literals);
+	}
+	
+	private final OutputClassListener listener;
+	private final Map<OutputClass, Integer> counts = new EnumMap<OutputClass, Integer>(OutputClass.class);
+	private final Map<OutputClass, String> firstLines = new EnumMap<OutputClass, String>(OutputClass.class);
+	private long lineNumber = 0;
+	
+	/**
+	 * Constructs a classifier for the output of a job
+	 * @param listener - listener of classified lines or <code>null</code>
+	 */
+	public OutputClassifier(OutputClassListener listener) {
+		this.listener = listener;
+	}
+	
+	/**
+	 * Classifies a line. Lines of both streams may be fed from different threads.
+	 * @param line - output line
+	 * @param error - if it comes from the standard error stream
+	 */
+	public void line(String line, boolean error) {
+		Set<OutputClass> classes = classify(line);
+		long number;
+		synchronized( this ) {
+			number = ++lineNumber;
+			for( OutputClass c : classes ) {
+				Integer count = counts.get(c);
+				counts.put(c, count == null ? 1 : count + 1);
+				if( !firstLines.containsKey(c) ) firstLines.put(c, line);
+			}
+		}
+		if( listener != null )
+			for( OutputClass c : classes ) listener.classified(c, line, number);
+	}
+	
+	/**
+	 * @return classes of every line classified so far
+	 */
+	public synchronized Set<OutputClass> getClasses() {
+		return counts.isEmpty() ? EnumSet.noneOf(OutputClass.class) : EnumSet.copyOf(counts.keySet());
+	}
+	
+	/**
+	 * @param outputClass - output class
+	 * @return number of lines of said class
+	 */
+	public synchronized int getCount(OutputClass outputClass) {
+		Integer count = counts.get(outputClass);
+		return count == null ? 0 : count;
+	}
+	
+	/**
+	 * @param outputClass - output class
+	 * @return first line of said class or <code>null</code> if there is none
+	 */
+	public synchronized String getFirstLine(OutputClass outputClass) {
+		return firstLines.get(outputClass);
+	}
+	
+	/**
+	 * @return summary of the classified lines, one class per line, with their
+	 * number of lines and first line
+	 */
+	public synchronized String getSummary() {
+		List<String> lines = new ArrayList<String>();
+		for( Map.Entry<OutputClass, Integer> entry : counts.entrySet() )
+			lines.add(String.format("%s (%d): %s", entry.getKey().getLabel(), entry.getValue(),
+					firstLines.get(entry.getKey())));
+		return String.join("\n", lines);
+	}
+	
+	/**
+	 * Classifies a single line, regardless of any other
+	 * @param line - output line
+	 * @return classes of the line (empty if none)
+	 */
+	public static Set<OutputClass> classify(String line) {
+		boolean [] found = triggers.find(line.toLowerCase(Locale.ROOT));
+		Set<OutputClass> classes = null;
+		for( int i = 0 ; i < rules.length ; i++ ) {
+			if( !found[i] ) continue;
+			Rule rule = rules[i];
+			if( classes != null && classes.contains(rule.outputClass) ) continue;
+			if( rule.pattern != null && !rule.pattern.matcher(line).find() ) continue;
+			if( classes == null ) classes = EnumSet.noneOf(OutputClass.class);
+			classes.add(rule.outputClass);
+		}
+		return classes == null ? Collections.<OutputClass>emptySet() : classes;
+	}
+	
+}
@@ -5,20 +5,14 @@ import vars.properties.bool.LongBooleanProperty;
 public class SetupErrorListener extends LongBooleanProperty implements ErrorListener {
 
 	public static enum Type {
-		ARC(0, "vis arc install-certificate", true),
-		ANY(1, "", true);
+		ARC(0),
+		ANY(1);
 		
 		private final int value;
-		private final String regex;
-		private final boolean isErrorWhenEnabled;
-	    private Type(int value, String regex, boolean isErrorWhenEnabled) {
-	    	this.value = value;
-	    	this.regex = regex;
-	    	this.isErrorWhenEnabled = isErrorWhenEnabled;
-    	}
+	    private Type(int value) { this.value = value; }
 	    public int getValue() { return value; }
-	    public boolean showError(String output, boolean isEnabled) {
-	    	return output.matches(".*"+regex+".*") && isEnabled == isErrorWhenEnabled;
+	    public static Type of(OutputClass outputClass) {
+	    	return outputClass == OutputClass.CERTIFICATE ? ARC : ANY;
 	    }
 	}
 	
@@ -30,14 +24,8 @@ public class SetupErrorListener extends LongBooleanProperty implements ErrorList
 		super(SETUP_ERRORS_COUNT, true, "setup-err");
 	}
 	
-	public boolean handleErrorOutput(String output) {
-		boolean isError = true;
-		for( Type type : Type.values() ) {
-			if( !type.showError(output, isEnabled(type.getValue())) ) {
-				isError = false; break;
-			}
-		}
-		return !isError;
+	public boolean isError(OutputClass outputClass) {
+		return isEnabled(Type.of(outputClass).getValue());
 	}
 
 	public boolean isHandling() { return isHandling; }
@@ -0,0 +1,362 @@
+package svn.process;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import vars.LocalResources;
+import vars.properties.GlobalProperties;
+
+/**
+ * <p>The <code>JobLog</code> class writes the full output of a job to disk, in a file per
+ * branch and job, inside a folder per launch:
+ * <p><code>&lt;job logs folder&gt;/&lt;launch id&gt;/&lt;branch&gt;.&lt;job&gt;.log[.gz|.z]</code>
+ * <p>Lines are not written by the thread that appends them. They are handed to the
+ * {@link JobLogWriter} thread, that encodes them into a large buffer and writes it to a
+ * file channel, optionally through a gzip or deflate stream. Thus, a slow disk never
+ * slows down the process whose output is being drained.
+ * <p>When closed, the log is registered in the index file, in the following tab-separated format:
+ * <p><code>launch id, branch, job, start time stamp, end time stamp, output size, file path</code>
+ * <p>Only the logs of the most recent launches are kept, as set by the property 'joblaunches'
+ * (see {@link #cleanUp()}).
+ * @author guidanoli
+ * @see ProcessRunner#setJobLog(JobLog)
+ */
+public class JobLog {
+
+	/**
+	 * Compression of job log files, as set in the 'logcompression' property
+	 * @author guidanoli
+	 */
+	public static enum Compression {
+		NONE("none", ""),
+		GZIP("gzip", ".gz"),
+		DEFLATE("deflate", ".z");
+		
+		private final String label;
+		private final String extension;
+		private Compression(String label, String extension) {
+			this.label = label;
+			this.extension = extension;
+		}
+		
+		/**
+		 * @return label as set in the 'logcompression' property
+		 */
+		public String getLabel() { return label; }
+		
+		/**
+		 * @return file name extension
+		 */
+		public String getExtension() { return extension; }
+		
+		/**
+		 * @return every label, in declaration order
+		 */
+		public static String [] getLabels() {
+			Compression [] values = values();
+			String [] labels = new String[values.length];
+			for( int i = 0 ; i < values.length ; i++ ) labels[i] = values[i].label;
+			return labels;
+		}
+		
+		/**
+		 * @param label - property value
+		 * @return compression of said label or {@link #NONE} if unknown
+		 */
+		public static Compression fromLabel(String label) {
+			for( Compression compression : values() )
+				if( compression.label.equals(label) ) return compression;
+			return NONE;
+		}
+		
+	}
+	
+	/** Size of the buffer in which lines are gathered before written */
+	public static final int BUFFER_SIZE = 256 * 1024;
+	/** Maximum time the application waits for the logs to be written on exit, in milliseconds */
+	public static final long EXIT_TIMEOUT = 10000;
+	
+	private static final String indexFile = LocalResources.joblogindex;
+	private static final byte [] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+	
+	private final String launchId;
+	private final String branchName;
+	private final String jobName;
+	private final Compression compression;
+	private final File file;
+	private final long startTime = System.currentTimeMillis();
+	private final AtomicLong droppedLines = new AtomicLong();
+	
+	// only accessed by the writer thread
+	private FileChannel fileChannel;
+	private WritableByteChannel channel;
+	private Deflater deflater;
+	private ByteBuffer buffer;
+	private long size = 0;
+	private boolean failed = false;
+	
+	/**
+	 * Opens the log of a job. The file is created by the writer thread.
+	 * @param launchId - launch identifier
+	 * @param branchName - branch folder name
+	 * @param jobName - job name
+	 * @param compression - file compression
+	 */
+	public JobLog(String launchId, String branchName, String jobName, Compression compression) {
+		this.launchId = launchId;
+		this.branchName = branchName;
+		this.jobName = jobName;
+		this.compression = compression;
+		this.file = Paths.get(LocalResources.joblogfolder, launchId,
+				branchName + "." + jobName + ".log" + compression.getExtension()).toFile();
+		JobLogWriter.getInstance().open(this);
+	}
+	
+	/**
+	 * @return log file
+	 */
+	public File getFile() { return file; }
+	
+	/**
+	 * Appends a line to the log, without blocking. If the writer thread has too many
+	 * lines to write already, the line is dropped, and only counted.
+	 * @param line - line without line break
+	 * @see JobLogWriter#MAX_PENDING_LINES
+	 */
+	public void appendLine(String line) {
+		if( !JobLogWriter.getInstance().write(this, line) ) droppedLines.incrementAndGet();
+	}
+	
+	/**
+	 * Closes the log, without blocking. Lines appended afterwards are ignored.
+	 */
+	public void close() {
+		JobLogWriter.getInstance().close(this);
+	}
+	
+	/**
+	 * Waits for every log to be written, as far as they have been appended to
+	 * @param timeout - maximum time to wait, in milliseconds
+	 * @return <code>true</code> if every log has been written
+	 */
+	public static boolean awaitPending(long timeout) {
+		return JobLogWriter.getInstance().await(timeout);
+	}
+	
+	/**
+	 * Keeps the logs of the most recent launches only, as set by the property 'joblaunches',
+	 * and waits for every log to be written. Called before the application exits.
+	 * @return <code>true</code> if every log has been written
+	 */
+	public static boolean cleanUp() {
+		try {
+			JobLogWriter.getInstance().retain(Integer.parseInt(GlobalProperties.getInstance().get("joblaunches")));
+		} catch( NumberFormatException e ) {
+			// logs are kept until the property is fixed
+		}
+		return awaitPending(EXIT_TIMEOUT);
+	}
+	
+	/**
+	 * Reads the index entries
+	 * @return index entries, as arrays of fields, in the order the logs were closed
+	 * (empty if there are none)
+	 */
+	private static List<String []> readIndex() {
+		List<String []> entries = new ArrayList<String []>();
+		Path path = Paths.get(indexFile);
+		if( !Files.exists(path) ) return entries;
+		try( BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8) ) {
+			String line;
+			while( ( line = reader.readLine() ) != null ) {
+				String [] fields = line.split("\t");
+				if( fields.length == 7 ) entries.add(fields);
+			}
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+		return entries;
+	}
+	
+	/* ***************************
+	 * CALLED BY THE WRITER THREAD
+	 * *************************** */
+	
+	void doOpen() {
+		try {
+			file.getParentFile().mkdirs();
+			fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			switch(compression) {
+			case GZIP:
+				channel = Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), BUFFER_SIZE));
+				break;
+			case DEFLATE:
+				deflater = new Deflater();
+				channel = Channels.newChannel(new DeflaterOutputStream(Channels.newOutputStream(fileChannel),
+						deflater, BUFFER_SIZE));
+				break;
+			default:
+				channel = fileChannel;
+			}
+			buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+	
+	void doWrite(String line) {
+		if( failed || buffer == null ) return;
+		byte [] bytes = line.getBytes(StandardCharsets.UTF_8);
+		try {
+			putDropped();
+			put(bytes);
+			put(lineSeparator);
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+	
+	void doClose() {
+		if( failed || buffer == null ) return;
+		try {
+			putDropped();
+			flush();
+			channel.close(); // finishes compression, if any, and closes the file channel
+			fileChannel.close();
+		} catch (IOException e) {
+			fail(e);
+			return;
+		} finally {
+			if( deflater != null ) deflater.end();
+		}
+		buffer = null;
+		register();
+	}
+	
+	/**
+	 * Deletes the launch folders but the most recent ones, along with their index entries.
+	 * Launch identifiers sort by time, and so do their folders.
+	 * @param launches - number of launches whose logs are kept
+	 */
+	static void doRetain(int launches) {
+		File [] folders = new File(LocalResources.joblogfolder).listFiles(new FileFilter() {
+			public boolean accept(File f) { return f.isDirectory(); }
+		});
+		if( folders == null || folders.length <= launches ) return;
+		Arrays.sort(folders);
+		Set<String> dropped = new HashSet<String>();
+		for( int i = 0 ; i < folders.length - launches ; i++ ) {
+			delete(folders[i]);
+			dropped.add(folders[i].getName());
+		}
+		Path index = Paths.get(indexFile);
+		Path temp = Paths.get(indexFile + ".tmp");
+		try {
+			try( BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8) ) {
+				for( String [] entry : readIndex() ) {
+					if( dropped.contains(entry[0]) ) continue;
+					writer.write(String.join("\t", entry));
+					writer.newLine();
+				}
+			}
+			LocalResources.replace(temp.toFile(), index.toFile());
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+	
+	private static void delete(File f) {
+		File [] children = f.listFiles();
+		if( children != null ) for( File child : children ) delete(child);
+		if( !f.delete() ) System.err.println("Could not delete " + f.getAbsolutePath());
+	}
+	
+	/**
+	 * Puts the number of lines dropped since the last line written, if any
+	 */
+	private void putDropped() throws IOException {
+		long dropped = droppedLines.getAndSet(0);
+		if( dropped == 0 ) return;
+		put(String.format("[%d lines dropped]", dropped).getBytes(StandardCharsets.UTF_8));
+		put(lineSeparator);
+	}
+	
+	/**
+	 * Puts bytes in the buffer, flushing it as it gets full
+	 */
+	private void put(byte [] bytes) throws IOException {
+		size += bytes.length;
+		if( bytes.length > buffer.remaining() ) {
+			flush();
+			if( bytes.length > buffer.capacity() ) {
+				write(channel, ByteBuffer.wrap(bytes));
+				return;
+			}
+		}
+		buffer.put(bytes);
+	}
+	
+	/**
+	 * Writes the buffer content to the channel
+	 */
+	private void flush() throws IOException {
+		buffer.flip();
+		write(channel, buffer);
+		buffer.clear();
+	}
+	
+	/**
+	 * Appends this log to the index file
+	 */
+	private void register() {
+		String entry = String.join("\t", launchId, branchName, jobName, Long.toString(startTime),
+				Long.toString(System.currentTimeMillis()), Long.toString(size), file.getAbsolutePath());
+		try( FileChannel index = FileChannel.open(Paths.get(indexFile), StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND, StandardOpenOption.WRITE) ) {
+			write(index, ByteBuffer.wrap((entry + System.lineSeparator()).getBytes(StandardCharsets.UTF_8)));
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+	
+	private static void write(WritableByteChannel target, ByteBuffer bytes) throws IOException {
+		while( bytes.hasRemaining() ) target.write(bytes);
+	}
+	
+	/**
+	 * Gives up on writing the log. Logs are merely informative, so the job goes on.
+	 */
+	private void fail(IOException e) {
+		failed = true;
+		if( deflater != null ) deflater.end();
+		e.printStackTrace(System.err);
+		try {
+			if( fileChannel != null ) fileChannel.close();
+		} catch (IOException e1) {
+			// nothing else to do
+		}
+	}
+	
+}
@@ -0,0 +1,139 @@
+package svn.process;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>The <code>JobLogWriter</code> is the single thread that writes every {@link JobLog}.
+ * Operations are queued, so that appending a line never blocks, and are carried out in the
+ * order they were queued, in batches.
+ * <p>At most {@link #MAX_PENDING_LINES} lines wait to be written at a time. Should the disk
+ * fall behind the jobs, lines appended past that are dropped, and the number of lines
+ * dropped is written in their place (see {@link JobLog#appendLine(String)}). Other
+ * operations are never dropped.
+ * @author guidanoli
+ */
+class JobLogWriter {
+
+	/** Maximum number of lines waiting to be written */
+	public static final int MAX_PENDING_LINES = 64 * 1024;
+	
+	private static final int BATCH_SIZE = 4096;
+	private static JobLogWriter instance = null;
+	
+	private static final int OPEN = 0, WRITE = 1, CLOSE = 2, BARRIER = 3, RETAIN = 4;
+	
+	/**
+	 * An operation on a log
+	 */
+	private static class Operation {
+		final int type;
+		final JobLog log;
+		final String line;
+		final CountDownLatch barrier;
+		final int count;
+		Operation(int type, JobLog log, String line, CountDownLatch barrier) {
+			this(type, log, line, barrier, 0);
+		}
+		Operation(int type, JobLog log, String line, CountDownLatch barrier, int count) {
+			this.type = type;
+			this.log = log;
+			this.line = line;
+			this.barrier = barrier;
+			this.count = count;
+		}
+	}
+	
+	private final BlockingQueue<Operation> operations = new LinkedBlockingQueue<Operation>();
+	private final AtomicInteger pendingLines = new AtomicInteger();
+	
+	private JobLogWriter() {
+		Thread t = new Thread(new Runnable() {
+			public void run() { consume(); }
+		}, "job-log-writer");
+		t.setDaemon(true);
+		t.start();
+	}
+	
+	/**
+	 * @return writer singleton, started on first use
+	 */
+	static synchronized JobLogWriter getInstance() {
+		if( instance == null ) instance = new JobLogWriter();
+		return instance;
+	}
+	
+	void open(JobLog log) { operations.offer(new Operation(OPEN, log, null, null)); }
+	void close(JobLog log) { operations.offer(new Operation(CLOSE, log, null, null)); }
+	void retain(int launches) { operations.offer(new Operation(RETAIN, null, null, null, launches)); }
+	
+	/**
+	 * Queues a line to be written, unless there are too many lines waiting already
+	 * @param log - job log
+	 * @param line - line without line break
+	 * @return <code>true</code> if queued, or <code>false</code> if dropped
+	 */
+	boolean write(JobLog log, String line) {
+		if( pendingLines.incrementAndGet() > MAX_PENDING_LINES ) {
+			pendingLines.decrementAndGet();
+			return false;
+		}
+		operations.offer(new Operation(WRITE, log, line, null));
+		return true;
+	}
+	
+	/**
+	 * Waits for every operation queued so far to be carried out
+	 * @param timeout - maximum time to wait, in milliseconds
+	 * @return <code>true</code> if they have been carried out
+	 */
+	boolean await(long timeout) {
+		CountDownLatch barrier = new CountDownLatch(1);
+		operations.offer(new Operation(BARRIER, null, null, barrier));
+		try {
+			return barrier.await(timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+	private void consume() {
+		List<Operation> batch = new ArrayList<Operation>(BATCH_SIZE);
+		while( true ) {
+			try {
+				batch.add(operations.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			operations.drainTo(batch, BATCH_SIZE - 1);
+			for( Operation op : batch ) {
+				switch(op.type) {
+				case OPEN:
+					op.log.doOpen();
+					break;
+				case WRITE:
+					pendingLines.decrementAndGet();
+					op.log.doWrite(op.line);
+					break;
+				case CLOSE:
+					op.log.doClose();
+					break;
+				case BARRIER:
+					op.barrier.countDown();
+					break;
+				case RETAIN:
+					JobLog.doRetain(op.count);
+					break;
+				}
+			}
+			batch.clear();
+		}
+	}
+	
+}
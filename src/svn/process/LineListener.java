@@ -0,0 +1,19 @@
+package svn.process;
+
+/**
+ * <p>Receives the output of a process line by line, as it is drained by a
+ * {@link ProcessRunner}. Lines of the standard output and of the standard error
+ * are drained on different threads, and thus, implementations must be thread-safe.
+ * @author guidanoli
+ * @see ProcessRunner#addLineListener(LineListener)
+ */
+public interface LineListener {
+
+	/**
+	 * Signals that a line has been output
+	 * @param line - output line, without line terminator
+	 * @param error - if it comes from the standard error stream
+	 */
+	public void line(String line, boolean error);
+	
+}
@@ -0,0 +1,64 @@
+package svn.process;
+
+import java.io.File;
+
+/**
+ * <p>The <code>ProcessOutput</code> class holds what is left of the output of a
+ * finished process: its exit code, the tail of each stream, if any, the file
+ * where the full output was written to and, if it was aborted, why.
+ * @author guidanoli
+ * @see ProcessRunner
+ */
+public class ProcessOutput {
+
+	private final int exitCode;
+	private final TailBuffer stdout;
+	private final TailBuffer stderr;
+	private final File outputFile;
+	private final String abortReason;
+	
+	ProcessOutput(int exitCode, TailBuffer stdout, TailBuffer stderr, File outputFile, String abortReason) {
+		this.exitCode = exitCode;
+		this.stdout = stdout;
+		this.stderr = stderr;
+		this.outputFile = outputFile;
+		this.abortReason = abortReason;
+	}
+	
+	/**
+	 * @return process exit code
+	 */
+	public int getExitCode() { return exitCode; }
+	
+	/**
+	 * @return standard output (or its tail, see {@link #isTruncated()})
+	 */
+	public String getOutput() { return stdout.toString(); }
+	
+	/**
+	 * @return standard error (or its tail, see {@link #isTruncated()})
+	 */
+	public String getError() { return stderr.toString(); }
+	
+	/**
+	 * @return <code>true</code> if the beginning of any stream has been dropped
+	 */
+	public boolean isTruncated() { return stdout.isTruncated() || stderr.isTruncated(); }
+	
+	/**
+	 * @return file containing the full output of both streams or <code>null</code>
+	 * if it was not written to disk
+	 */
+	public File getOutputFile() { return outputFile; }
+	
+	/**
+	 * @return <code>true</code> if the process was killed by {@link ProcessRunner#abort(String)}
+	 */
+	public boolean isAborted() { return abortReason != null; }
+	
+	/**
+	 * @return reason why the process was aborted or <code>null</code> if it was not
+	 */
+	public String getAbortReason() { return abortReason; }
+	
+}
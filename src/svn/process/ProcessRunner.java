@@ -0,0 +1,214 @@
+package svn.process;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>The <code>ProcessRunner</code> runs a process and drains its standard output and
+ * standard error at the same time, each on its own thread. Reading one stream to the end
+ * before the other would deadlock a process that fills the pipe buffer of the other.
+ * <p>Only the tail of each stream is kept in memory, in a {@link TailBuffer}. The full
+ * output of both streams can be handed to a {@link JobLog}, line by line as it arrives,
+ * so that memory stays flat no matter how much the process outputs.
+ * <p>Lines can also be handed to {@link LineListener}s as they arrive, so that they can be
+ * acted upon while the process is still running, for example, by aborting it as soon as
+ * its fate is known (see {@link #abort(String)}).
+ * <p>Example of usage:
+ * <p><b><code>ProcessOutput output = new ProcessRunner(pb).setTailSize(65536).setJobLog(log).run();</code></b>
+ * @author guidanoli
+ * @see ProcessOutput
+ */
+public class ProcessRunner {
+
+	private final ProcessBuilder builder;
+	private int stdoutTailSize = 0;
+	private int stderrTailSize = 0;
+	private JobLog jobLog = null;
+	private List<Process> registry = null;
+	private final List<LineListener> lineListeners = new ArrayList<LineListener>();
+	private Process process = null;
+	private String abortReason = null;
+	
+	/**
+	 * Constructs a runner that keeps the whole output in memory
+	 * @param builder - process builder, with command and directory already set
+	 */
+	public ProcessRunner(ProcessBuilder builder) {
+		this.builder = builder;
+	}
+	
+	/**
+	 * Limits the output kept in memory
+	 * @param size - number of characters kept of each stream, or a non-positive
+	 * value for no limit
+	 * @return this runner
+	 */
+	public ProcessRunner setTailSize(int size) {
+		return setTailSize(size, size);
+	}
+	
+	/**
+	 * Limits the output kept in memory
+	 * @param stdoutSize - number of characters kept of the standard output
+	 * @param stderrSize - number of characters kept of the standard error
+	 * @return this runner
+	 * @see TailBuffer#TailBuffer(int)
+	 */
+	public ProcessRunner setTailSize(int stdoutSize, int stderrSize) {
+		stdoutTailSize = stdoutSize;
+		stderrTailSize = stderrSize;
+		return this;
+	}
+	
+	/**
+	 * Writes the full output of both streams to a job log, which is closed
+	 * as soon as the process ends
+	 * @param log - job log or <code>null</code> for none
+	 * @return this runner
+	 */
+	public ProcessRunner setJobLog(JobLog log) {
+		jobLog = log;
+		return this;
+	}
+	
+	/**
+	 * Keeps the process in a list while it runs, so that it can be killed by others
+	 * @param processes - synchronized list of running processes
+	 * @return this runner
+	 */
+	public ProcessRunner setRegistry(List<Process> processes) {
+		registry = processes;
+		return this;
+	}
+	
+	/**
+	 * Hands every line of both streams to a listener, as soon as it is drained.
+	 * Listeners are called in the order they were added.
+	 * @param listener - line listener or <code>null</code> for none
+	 * @return this runner
+	 */
+	public ProcessRunner addLineListener(LineListener listener) {
+		if( listener != null ) lineListeners.add(listener);
+		return this;
+	}
+	
+	/**
+	 * <p>Starts the process and waits for it to end. The standard output is drained on
+	 * the calling thread, and the standard error, on a new daemon thread.
+	 * <p>If the calling thread is interrupted meanwhile, the process is destroyed.
+	 * @return process output
+	 * @throws IOException if the process could not be started or its output
+	 * could not be read
+	 * @throws InterruptedException if interrupted while waiting for the process
+	 */
+	public ProcessOutput run() throws IOException, InterruptedException {
+		TailBuffer stdout = new TailBuffer(stdoutTailSize);
+		TailBuffer stderr = new TailBuffer(stderrTailSize);
+		Process p = null;
+		try {
+			p = builder.start();
+			if( registry != null ) registry.add(p);
+			synchronized( this ) {
+				process = p;
+				if( abortReason != null ) destroyTree(p);
+			}
+			StreamDrainer errDrainer = new StreamDrainer(p.getErrorStream(), true, stderr, jobLog, lineListeners);
+			Thread errThread = new Thread(errDrainer, Thread.currentThread().getName() + "-stderr");
+			errThread.setDaemon(true);
+			errThread.start();
+			StreamDrainer outDrainer = new StreamDrainer(p.getInputStream(), false, stdout, jobLog, lineListeners);
+			outDrainer.run();
+			errThread.join();
+			int exitCode = p.waitFor();
+			String reason = getAbortReason();
+			if( reason == null ) { // pipes closed by killing the process are not errors
+				if( outDrainer.getException() != null ) throw outDrainer.getException();
+				if( errDrainer.getException() != null ) throw errDrainer.getException();
+			}
+			return new ProcessOutput(exitCode, stdout, stderr, jobLog == null ? null : jobLog.getFile(), reason);
+		} catch (InterruptedException e) {
+			destroyTree(p);
+			throw e;
+		} finally {
+			if( p != null && registry != null ) registry.remove(p);
+			if( jobLog != null ) jobLog.close();
+		}
+	}
+	
+	/**
+	 * <p>Kills the process and every process it has started, so that its slot is freed
+	 * right away instead of when it ends by itself. It may be called from any thread,
+	 * including from a {@link LineListener} of this runner. If the process has not been
+	 * started yet, it is killed as soon as it is.
+	 * <p>Only the first reason is kept. The output is still returned by {@link #run()}.
+	 * @param reason - why the process is being aborted
+	 * @see ProcessOutput#getAbortReason()
+	 */
+	public synchronized void abort(String reason) {
+		if( abortReason != null ) return;
+		abortReason = reason;
+		if( process != null ) destroyTree(process);
+	}
+	
+	/**
+	 * @return reason passed to {@link #abort(String)} or <code>null</code> if not aborted
+	 */
+	public synchronized String getAbortReason() { return abortReason; }
+	
+	/**
+	 * <p>Forcibly kills a process and all of its descendants. Descendants are killed
+	 * first, because they would be reparented (and thus, out of reach) once their
+	 * parent is gone, and because they may hold the output pipes open.
+	 * @param p - process
+	 */
+	public static void destroyTree(Process p) {
+		Iterator<ProcessHandle> descendants = p.descendants().iterator();
+		while( descendants.hasNext() ) descendants.next().destroyForcibly();
+		p.destroyForcibly();
+	}
+	
+	/**
+	 * Reads a stream line by line until its end, keeping its tail and
+	 * handing it to the job log and line listeners shared by both streams
+	 * @author guidanoli
+	 */
+	private static class StreamDrainer implements Runnable {
+		
+		private final InputStream stream;
+		private final boolean error;
+		private final TailBuffer tail;
+		private final JobLog log;
+		private final List<LineListener> listeners;
+		private IOException exception = null;
+		
+		StreamDrainer(InputStream stream, boolean error, TailBuffer tail, JobLog log, List<LineListener> listeners) {
+			this.stream = stream;
+			this.error = error;
+			this.tail = tail;
+			this.log = log;
+			this.listeners = listeners;
+		}
+		
+		public void run() {
+			String line;
+			try( BufferedReader reader = new BufferedReader(new InputStreamReader(stream)) ) {
+				while( ( line = reader.readLine() ) != null ) {
+					tail.appendLine(line);
+					if( log != null ) log.appendLine(line);
+					for( LineListener listener : listeners ) listener.line(line, error);
+				}
+			} catch (IOException e) {
+				exception = e;
+			}
+		}
+		
+		IOException getException() { return exception; }
+		
+	}
+	
+}
@@ -0,0 +1,105 @@
+package svn.process;
+
+/**
+ * <p>The <code>TailBuffer</code> keeps the last characters appended to it, in a ring
+ * buffer of fixed capacity, so that the memory taken by the output of a process does
+ * not depend on how much it outputs. The buffer grows on demand up to its capacity,
+ * so that short outputs take little memory.
+ * <p>A buffer without capacity (zero or negative) keeps every character appended to it.
+ * <p>It is thread-safe.
+ * @author guidanoli
+ * @see ProcessRunner
+ */
+public class TailBuffer {
+
+	private static final int INITIAL_SIZE = 256;
+	
+	private final int capacity;
+	private char [] buffer;
+	private int start = 0; // index of the oldest character
+	private int length = 0;
+	private long appended = 0;
+	
+	/**
+	 * Constructs an empty tail buffer
+	 * @param capacity - maximum number of characters kept, or a non-positive value
+	 * for no limit
+	 */
+	public TailBuffer(int capacity) {
+		this.capacity = capacity;
+		buffer = new char[capacity > 0 ? Math.min(capacity, INITIAL_SIZE) : INITIAL_SIZE];
+	}
+	
+	/**
+	 * Appends a line, followed by a line break
+	 * @param line - line without line break
+	 */
+	public synchronized void appendLine(String line) {
+		append(line);
+		append("\n");
+	}
+	
+	/**
+	 * Appends characters, dropping the oldest ones if the capacity is exceeded
+	 * @param str - characters
+	 */
+	public synchronized void append(String str) {
+		appended += str.length();
+		int from = 0;
+		if( capacity > 0 && str.length() > capacity ) from = str.length() - capacity;
+		ensureSize(length + str.length() - from);
+		for( int i = from ; i < str.length() ; i++ ) {
+			int end = ( start + length ) % buffer.length;
+			buffer[end] = str.charAt(i);
+			if( length < buffer.length ) length++;
+			else start = ( start + 1 ) % buffer.length;
+		}
+	}
+	
+	/**
+	 * @return <code>true</code> if any character has been dropped
+	 */
+	public synchronized boolean isTruncated() {
+		return appended > length;
+	}
+	
+	/**
+	 * @return number of characters appended so far, including the dropped ones
+	 */
+	public synchronized long getAppendedCount() {
+		return appended;
+	}
+	
+	/**
+	 * @return characters kept, from the oldest to the newest, without the
+	 * trailing line break. If truncated, the first line, which is likely to
+	 * be partial, is left out.
+	 */
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder(length);
+		for( int i = 0 ; i < length ; i++ ) sb.append(buffer[( start + i ) % buffer.length]);
+		int end = sb.length();
+		if( end > 0 && sb.charAt(end - 1) == '\n' ) sb.setLength(end - 1);
+		if( isTruncated() ) {
+			int firstBreak = sb.indexOf("\n");
+			if( firstBreak >= 0 ) sb.delete(0, firstBreak + 1);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Grows the buffer, if it is still below capacity
+	 * @param size - number of characters to fit
+	 */
+	private void ensureSize(int size) {
+		if( size <= buffer.length ) return;
+		if( capacity > 0 && buffer.length == capacity ) return;
+		int newSize = Math.max(size, buffer.length * 2);
+		if( capacity > 0 ) newSize = Math.min(newSize, capacity);
+		char [] newBuffer = new char[newSize];
+		for( int i = 0 ; i < length ; i++ ) newBuffer[i] = buffer[( start + i ) % buffer.length];
+		buffer = newBuffer;
+		start = 0;
+	}
+	
+}
@@ -0,0 +1,204 @@
+package svn.scheduler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import vars.LocalResources;
+
+/**
+ * <p>The <code>AdaptiveConcurrencyController</code> tunes the limit of a {@link JobScheduler}
+ * during a launch, in an AIMD (additive increase, multiplicative decrease) fashion.
+ * <p>Every {@link #SAMPLE_PERIOD} seconds it samples the system load (per core), the free
+ * physical memory and the throughput of finished jobs, and decides to:
+ * <ul>
+ * <li><b>decrease</b> - halves the limit if the system is overloaded or short on memory</li>
+ * <li><b>increase</b> - adds one to the limit if every permit is taken, jobs are queued, the
+ * system has spare capacity and the throughput did not drop since the last change</li>
+ * <li><b>hold</b> - keeps the limit as is, otherwise</li>
+ * </ul>
+ * <p>After any change, increase or decrease, the limit is held for {@link #COOLDOWN} samples
+ * so that the load can catch up with it. Thus, a single spike halves the limit once.
+ * <p>On systems where the load average is not available (e.g. Windows), the CPU usage of
+ * the whole system is sampled instead, and compared against its own thresholds, since it
+ * never exceeds 1.
+ * <p>Every decision is appended to the concurrency log file, along with the samples that
+ * led to it.
+ * @author guidanoli
+ * @see JobScheduler#setLimit(int)
+ */
+public class AdaptiveConcurrencyController {
+
+	/** Seconds between two samples */
+	public static final int SAMPLE_PERIOD = 10;
+	/** Samples to wait after a change before changing again */
+	public static final int COOLDOWN = 3;
+	/** Load per core above which the limit is decreased */
+	public static final double HIGH_LOAD = 1.0;
+	/** Load per core below which the limit may be increased */
+	public static final double LOW_LOAD = 0.75;
+	/** CPU usage above which the limit is decreased, if the load is not available */
+	public static final double HIGH_CPU_USAGE = 0.9;
+	/** CPU usage below which the limit may be increased, if the load is not available */
+	public static final double LOW_CPU_USAGE = 0.7;
+	/** Free memory ratio below which the limit is decreased */
+	public static final double LOW_MEMORY = 0.10;
+	/** Free memory ratio above which the limit may be increased */
+	public static final double SPARE_MEMORY = 0.25;
+
+	private static final String logFile = LocalResources.concurrencylog;
+
+	private final JobScheduler scheduler;
+	private final String stage;
+	private final int minLimit, maxLimit;
+	private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+	private final int cores = Runtime.getRuntime().availableProcessors();
+	private final AtomicInteger finishedJobs = new AtomicInteger();
+	private ScheduledExecutorService sampler;
+	private double lastThroughput = -1;
+	private int cooldown = 0;
+
+	/**
+	 * Constructs a controller for a scheduler
+	 * @param scheduler - job scheduler whose limit will be tuned
+	 * @param stage - stage name, as recorded in the concurrency log
+	 * @param minLimit - lower bound of the limit ( > 0 )
+	 * @param maxLimit - upper bound of the limit ( >= minLimit )
+	 */
+	public AdaptiveConcurrencyController(JobScheduler scheduler, String stage, int minLimit, int maxLimit) {
+		assert minLimit > 0 && maxLimit >= minLimit;
+		this.scheduler = scheduler;
+		this.stage = stage;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+	}
+
+	/**
+	 * Starts sampling on a daemon thread
+	 */
+	public synchronized void start() {
+		if( sampler != null ) return;
+		sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, stage + "-controller");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		sampler.scheduleAtFixedRate(new Runnable() {
+			public void run() { sample(); }
+		}, SAMPLE_PERIOD, SAMPLE_PERIOD, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops sampling. The scheduler keeps its current limit.
+	 */
+	public synchronized void stop() {
+		if( sampler == null ) return;
+		sampler.shutdownNow();
+	}
+
+	/**
+	 * Signals that a job of the scheduler has finished, accounting for throughput
+	 */
+	public void jobFinished() {
+		finishedJobs.incrementAndGet();
+	}
+
+	/**
+	 * Takes a sample and adjusts the scheduler limit accordingly
+	 */
+	private void sample() {
+		String metric = "load";
+		double load = getLoadPerCore(), highLoad = HIGH_LOAD, lowLoad = LOW_LOAD;
+		if( load < 0 ) {
+			metric = "cpu";
+			load = getCpuUsage();
+			highLoad = HIGH_CPU_USAGE;
+			lowLoad = LOW_CPU_USAGE;
+		}
+		double freeMemory = getFreeMemoryRatio();
+		double throughput = finishedJobs.getAndSet(0) * 60.0 / SAMPLE_PERIOD; // jobs per minute
+		int limit = scheduler.getLimit();
+		boolean saturated = scheduler.getRunningCount() >= limit && scheduler.getQueuedCount() > 0;
+		String decision;
+		int newLimit = limit;
+		if( cooldown > 0 ) {
+			decision = "hold"; // the load has yet to catch up with the last change
+		} else if( load > highLoad || ( freeMemory >= 0 && freeMemory < LOW_MEMORY ) ) {
+			newLimit = Math.max(minLimit, limit / 2);
+			decision = newLimit < limit ? "decrease" : "hold";
+		} else if( saturated && load >= 0 && load < lowLoad && ( freeMemory < 0 || freeMemory > SPARE_MEMORY )
+				&& throughput >= lastThroughput * 0.9 ) {
+			newLimit = Math.min(maxLimit, limit + 1);
+			decision = newLimit > limit ? "increase" : "hold";
+		} else {
+			decision = "hold";
+		}
+		if( newLimit != limit ) {
+			scheduler.setLimit(newLimit);
+			cooldown = COOLDOWN;
+			lastThroughput = throughput;
+		} else if( cooldown > 0 ) {
+			cooldown--;
+		}
+		record(decision, metric, load, freeMemory, throughput, limit, newLimit);
+	}
+
+	/**
+	 * @return system load average divided by the number of cores or a negative
+	 * value if not available (e.g. on Windows)
+	 */
+	private double getLoadPerCore() {
+		double load = os.getSystemLoadAverage();
+		return load < 0 ? -1 : load / cores;
+	}
+
+	/**
+	 * @return recent CPU usage of the whole system, between 0 and 1, or a negative value if not available
+	 */
+	private double getCpuUsage() {
+		if( !(os instanceof com.sun.management.OperatingSystemMXBean) ) return -1;
+		return ((com.sun.management.OperatingSystemMXBean) os).getCpuLoad();
+	}
+
+	/**
+	 * @return ratio of free physical memory or a negative value if not available
+	 */
+	private double getFreeMemoryRatio() {
+		if( !(os instanceof com.sun.management.OperatingSystemMXBean) ) return -1;
+		com.sun.management.OperatingSystemMXBean sunOs = (com.sun.management.OperatingSystemMXBean) os;
+		long total = sunOs.getTotalMemorySize();
+		if( total <= 0 ) return -1;
+		return (double) sunOs.getFreeMemorySize() / total;
+	}
+
+	/**
+	 * <p>Appends a decision to the concurrency log, in the following format:
+	 * <p><code>time stamp, stage, decision, load metric ('load' per core or 'cpu' usage),
+	 * load, free memory ratio, jobs per minute, old limit, new limit</code>
+	 * <p>IO errors do not interrupt the launch, since the log is merely informative.
+	 */
+	private void record(String decision, String metric, double load, double freeMemory, double throughput,
+			int oldLimit, int newLimit) {
+		String entry = String.format(Locale.ROOT, "%d %s %s %s %.2f %.2f %.1f %d %d",
+				System.currentTimeMillis(), stage, decision, metric, load, freeMemory, throughput, oldLimit, newLimit);
+		new File(LocalResources.datafolder).mkdirs();
+		try( BufferedWriter writer = new BufferedWriter(new FileWriter(logFile, true)) ) {
+			writer.write(entry);
+			writer.newLine();
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+
+}
@@ -0,0 +1,77 @@
+package svn.scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import svn.LauncherLogManager;
+import svn.stats.DurationHistogram;
+import svn.stats.DurationStatistics;
+import vars.properties.GlobalProperties;
+
+/**
+ * <p>The <code>DurationPredictor</code> predicts how long the setup and make jobs of
+ * each branch will take, from the duration histograms kept by {@link DurationStatistics},
+ * without reading the launch log. The prediction is the median duration of the jobs of
+ * said branch (with the current make command, for make jobs).
+ * <p>Branches without any recorded job are predicted to take as long as the median
+ * branch, so that they are neither started first nor last.
+ * @author guidanoli
+ * @see LauncherLogManager#logMake(long, int)
+ * @see LauncherLogManager#logSetup(Long, Long, long)
+ */
+public class DurationPredictor {
+
+	private final Map<String, Long> setupMillis = new HashMap<String, Long>();
+	private final Map<String, Long> makeMillis = new HashMap<String, Long>();
+	private final long defaultSetupMillis;
+	private final long defaultMakeMillis;
+
+	/**
+	 * Constructs a predictor from the current duration statistics
+	 */
+	public DurationPredictor() {
+		DurationStatistics stats = DurationStatistics.getInstance();
+		defaultSetupMillis = median(stats.getSetups(), setupMillis);
+		defaultMakeMillis = median(stats.getMakes(GlobalProperties.getInstance().get("makecmd")), makeMillis);
+	}
+
+	/**
+	 * @param branchName - branch folder name
+	 * @return predicted setup duration in milliseconds
+	 */
+	public long getSetupMillis(String branchName) {
+		Long millis = setupMillis.get(branchName);
+		return millis == null ? defaultSetupMillis : millis;
+	}
+
+	/**
+	 * @param branchName - branch folder name
+	 * @return predicted make duration in milliseconds
+	 */
+	public long getMakeMillis(String branchName) {
+		Long millis = makeMillis.get(branchName);
+		return millis == null ? defaultMakeMillis : millis;
+	}
+
+	/**
+	 * Takes the median duration of each branch
+	 * @param histograms - duration histogram of each branch, by branch name
+	 * @param medians - map to be filled with the median of each branch, by branch name
+	 * @return median of the medians or 0 if there are none
+	 */
+	private static long median(Map<String, DurationHistogram> histograms, Map<String, Long> medians) {
+		ArrayList<Long> values = new ArrayList<Long>();
+		for( Map.Entry<String, DurationHistogram> entry : histograms.entrySet() ) {
+			if( entry.getValue().getCount() == 0 ) continue;
+			long median = entry.getValue().getP50();
+			medians.put(entry.getKey(), median);
+			values.add(median);
+		}
+		if( values.isEmpty() ) return 0;
+		Collections.sort(values);
+		return values.get(values.size() / 2);
+	}
+
+}
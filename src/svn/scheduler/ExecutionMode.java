@@ -0,0 +1,116 @@
+package svn.scheduler;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Defines on which kind of thread the {@link JobScheduler} runs each branch job.
+ * In both modes, the number of jobs running at the same time is capped by the
+ * scheduler permits, not by the threads themselves.
+ * <ul>
+ * <li><b>pool</b> - a fixed pool of platform threads, as large as the permit count</li>
+ * <li><b>virtual</b> - every job runs on its own virtual thread, which costs next to nothing
+ * while blocked on the pipes of a child process. If the running JVM does not support virtual
+ * threads (prior to Java 21), every job runs on its own short-stacked daemon thread instead.</li>
+ * </ul>
+ * @author guidanoli
+ * @see JobScheduler
+ */
+public enum ExecutionMode {
+
+	POOL("pool"),
+	VIRTUAL("virtual");
+
+	/** Stack size of the threads used when virtual threads are unavailable */
+	private static final long FALLBACK_STACK_SIZE = 256 * 1024;
+
+	private final String label;
+	private ExecutionMode(String label) { this.label = label; }
+
+	/**
+	 * @return label as set in the 'execmode' property
+	 */
+	public String getLabel() { return label; }
+
+	/**
+	 * @return every label, in declaration order
+	 */
+	public static String [] getLabels() {
+		ExecutionMode [] modes = values();
+		String [] labels = new String[modes.length];
+		for( int i = 0 ; i < modes.length ; i++ ) labels[i] = modes[i].label;
+		return labels;
+	}
+
+	/**
+	 * @param label - property value
+	 * @return execution mode of said label or {@link #POOL} if unknown
+	 */
+	public static ExecutionMode fromLabel(String label) {
+		for( ExecutionMode mode : values() )
+			if( mode.label.equals(label) ) return mode;
+		return POOL;
+	}
+
+	/**
+	 * Creates the executor on which jobs will be run
+	 * @param name - prefix of the thread names
+	 * @param maxThreads - maximum number of jobs running at the same time
+	 * @return executor service
+	 */
+	ExecutorService newExecutor(String name, int maxThreads) {
+		switch(this) {
+		case VIRTUAL:
+			ExecutorService virtual = newVirtualThreadExecutor(name);
+			if( virtual != null ) return virtual;
+			return Executors.newCachedThreadPool(new NamedThreadFactory(name, FALLBACK_STACK_SIZE));
+		default:
+			return Executors.newFixedThreadPool(maxThreads, new NamedThreadFactory(name, 0));
+		}
+	}
+
+	/**
+	 * <p>Creates a thread-per-task executor backed by virtual threads. It is
+	 * looked up reflectively so that the application still runs on older JVMs.
+	 * @param name - prefix of the thread names
+	 * @return executor service or <code>null</code> if virtual threads are unavailable
+	 */
+	private static ExecutorService newVirtualThreadExecutor(String name) {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+			ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) perTask.invoke(null, factory);
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Names platform threads after the scheduler
+	 */
+	private static class NamedThreadFactory implements ThreadFactory {
+
+		private final String name;
+		private final long stackSize;
+		private final AtomicInteger count = new AtomicInteger();
+
+		NamedThreadFactory(String name, long stackSize) {
+			this.name = name;
+			this.stackSize = stackSize;
+		}
+
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(null, r, name + "-" + count.incrementAndGet(), stackSize);
+			t.setDaemon(true);
+			return t;
+		}
+
+	}
+
+}
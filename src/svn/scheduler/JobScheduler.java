@@ -0,0 +1,202 @@
+package svn.scheduler;
+
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * <p>The <code>JobScheduler</code> class runs branch jobs with a bounded concurrency.
+ * Jobs are queued as they are submitted and dispatched as soon as a permit is available,
+ * so the number of running jobs never exceeds the limit given on construction, no matter
+ * how many jobs are queued.
+ * <p>Queued jobs are dispatched by decreasing priority and, among jobs of same
+ * priority, in the order they were submitted.
+ * <p>The threads on which jobs run depend on the {@link ExecutionMode}. Either way,
+ * threads are only created when there is a job for them, so branches that have
+ * nothing to do cost no thread at all.
+ * <p>Every {@link svn.Launcher Launcher} owns its own scheduler, thus two launches never
+ * share (nor corrupt) each other's permits.
+ * @author guidanoli
+ * @see svn.Launcher Launcher
+ * @see ExecutionMode
+ */
+public class JobScheduler {
+
+	private final ExecutorService executor;
+	private final ResizableSemaphore permits;
+	private final Queue<QueuedJob> pending = new PriorityQueue<QueuedJob>();
+	private long submitted = 0;
+	private boolean shutdown = false;
+	private int limit;
+	private int running = 0;
+
+	/**
+	 * Constructs a job scheduler
+	 * @param name - prefix of the worker thread names
+	 * @param maxJobs - maximum number of jobs running at the same time ( > 0 )
+	 * @param mode - on which kind of thread jobs are run
+	 */
+	public JobScheduler(String name, int maxJobs, ExecutionMode mode) {
+		assert maxJobs > 0;
+		limit = maxJobs;
+		permits = new ResizableSemaphore(maxJobs);
+		executor = mode.newExecutor(name, maxJobs);
+	}
+
+	/**
+	 * <p>Changes the maximum number of jobs running at the same time. If it
+	 * shrinks, running jobs are not interrupted, but no job is dispatched
+	 * until there are less running jobs than the new limit.
+	 * @param maxJobs - maximum number of jobs running at the same time ( > 0 )
+	 */
+	public void setLimit(int maxJobs) {
+		assert maxJobs > 0;
+		synchronized( pending ) {
+			if( maxJobs == limit ) return;
+			if( executor instanceof ThreadPoolExecutor ) {
+				ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+				if( maxJobs > limit ) {
+					pool.setMaximumPoolSize(maxJobs);
+					pool.setCorePoolSize(maxJobs);
+				} else {
+					pool.setCorePoolSize(maxJobs);
+					pool.setMaximumPoolSize(maxJobs);
+				}
+			}
+			if( maxJobs > limit ) permits.release(maxJobs - limit);
+			else permits.reducePermits(limit - maxJobs);
+			limit = maxJobs;
+		}
+		dispatch();
+	}
+
+	/**
+	 * @return maximum number of jobs running at the same time
+	 */
+	public int getLimit() {
+		synchronized( pending ) { return limit; }
+	}
+
+	/**
+	 * @return number of jobs currently running
+	 */
+	public int getRunningCount() {
+		synchronized( pending ) { return running; }
+	}
+
+	/**
+	 * @return number of jobs waiting for a permit
+	 */
+	public int getQueuedCount() {
+		synchronized( pending ) { return pending.size(); }
+	}
+
+	/**
+	 * Queues a job with no particular priority.
+	 * @param job - job to be run
+	 * @see #submit(Runnable, long)
+	 */
+	public void submit(Runnable job) {
+		submit(job, 0);
+	}
+
+	/**
+	 * Queues a job. It will be run as soon as a permit is available and
+	 * there are no queued jobs of higher priority.
+	 * Jobs submitted after the scheduler has been shut down are dropped.
+	 * @param job - job to be run
+	 * @param priority - job priority (the higher, the sooner)
+	 */
+	public void submit(Runnable job, long priority) {
+		synchronized( pending ) {
+			if( shutdown ) return;
+			pending.add(new QueuedJob(job, priority, submitted++));
+		}
+		dispatch();
+	}
+
+	/**
+	 * No new jobs will be accepted. Threads are released as soon as
+	 * the queued jobs are done.
+	 */
+	public void shutdown() {
+		synchronized( pending ) {
+			shutdown = true;
+			if( pending.isEmpty() ) executor.shutdown();
+		}
+	}
+
+	/**
+	 * Drops every queued job and interrupts the running ones.
+	 */
+	public void cancel() {
+		synchronized( pending ) {
+			shutdown = true;
+			pending.clear();
+		}
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Runs queued jobs while there are permits left
+	 */
+	private void dispatch() {
+		synchronized( pending ) {
+			while( !pending.isEmpty() && permits.tryAcquire() ) {
+				Runnable job = pending.poll().job;
+				running++;
+				executor.execute(new Runnable() {
+					public void run() {
+						try {
+							job.run();
+						} finally {
+							synchronized( pending ) { running--; }
+							permits.release();
+							dispatch();
+						}
+					}
+				});
+			}
+			if( shutdown && pending.isEmpty() ) executor.shutdown();
+		}
+	}
+
+	/**
+	 * Job waiting for a permit
+	 */
+	private static class QueuedJob implements Comparable<QueuedJob> {
+
+		final Runnable job;
+		final long priority;
+		final long order;
+
+		QueuedJob(Runnable job, long priority, long order) {
+			this.job = job;
+			this.priority = priority;
+			this.order = order;
+		}
+
+		public int compareTo(QueuedJob other) {
+			if( priority != other.priority ) return Long.compare(other.priority, priority);
+			return Long.compare(order, other.order);
+		}
+
+	}
+
+	/**
+	 * Semaphore whose number of permits can also be reduced,
+	 * even below zero while the running jobs hold them
+	 */
+	private static class ResizableSemaphore extends Semaphore {
+
+		private static final long serialVersionUID = 5133413950224498717L;
+
+		ResizableSemaphore(int permits) { super(permits); }
+
+		protected void reducePermits(int reduction) { super.reducePermits(reduction); }
+
+	}
+
+}
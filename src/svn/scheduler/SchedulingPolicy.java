@@ -0,0 +1,88 @@
+package svn.scheduler;
+
+/**
+ * <p>Defines in which order the branches queued on each stage of a launch are run,
+ * when there are more branches than jobs allowed to run at the same time.
+ * <ul>
+ * <li><b>fifo</b> - in the order the branch folders are listed</li>
+ * <li><b>longest</b> - longest job first, by the predicted duration of the job
+ * of each stage (setup on the setup stage, make on the make stage)</li>
+ * <li><b>critical</b> - critical path first, by the predicted duration of everything
+ * a branch has yet to do (setup and make on the setup stage, make on the make stage)</li>
+ * </ul>
+ * <p>Starting the longest chains first keeps the slowest branch from being started
+ * last and dominating the launch wall-clock time.
+ * @author guidanoli
+ * @see DurationPredictor
+ */
+public enum SchedulingPolicy {
+
+	FIFO("fifo"),
+	LONGEST("longest"),
+	CRITICAL("critical");
+
+	private final String label;
+	private SchedulingPolicy(String label) { this.label = label; }
+
+	/**
+	 * @return label as set in the 'schedpolicy' property
+	 */
+	public String getLabel() { return label; }
+
+	/**
+	 * @return every label, in declaration order
+	 */
+	public static String [] getLabels() {
+		SchedulingPolicy [] policies = values();
+		String [] labels = new String[policies.length];
+		for( int i = 0 ; i < policies.length ; i++ ) labels[i] = policies[i].label;
+		return labels;
+	}
+
+	/**
+	 * @param label - property value
+	 * @return scheduling policy of said label or {@link #FIFO} if unknown
+	 */
+	public static SchedulingPolicy fromLabel(String label) {
+		for( SchedulingPolicy policy : values() )
+			if( policy.label.equals(label) ) return policy;
+		return FIFO;
+	}
+
+	/**
+	 * Gets the priority of a branch on the setup stage
+	 * @param predictor - duration predictor
+	 * @param branchName - branch folder name
+	 * @param make - if the branch will be compiled after set up
+	 * @return priority (the higher, the sooner)
+	 */
+	public long getSetupPriority(DurationPredictor predictor, String branchName, boolean make) {
+		switch(this) {
+		case LONGEST:
+			return predictor.getSetupMillis(branchName);
+		case CRITICAL:
+			long path = predictor.getSetupMillis(branchName);
+			if( make ) path += predictor.getMakeMillis(branchName);
+			return path;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * Gets the priority of a branch on the make stage
+	 * @param predictor - duration predictor
+	 * @param branchName - branch folder name
+	 * @return priority (the higher, the sooner)
+	 */
+	public long getMakePriority(DurationPredictor predictor, String branchName) {
+		switch(this) {
+		case LONGEST:
+		case CRITICAL:
+			return predictor.getMakeMillis(branchName);
+		default:
+			return 0;
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+package svn.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <p>The <code>DurationHistogram</code> counts durations in logarithmic buckets, so that it takes
+ * the same memory no matter how many durations it has counted, and answers percentiles within
+ * a relative error of about 9% (half a bucket).
+ * <p>Durations under a second share the first bucket. Above that, every doubling of the
+ * duration is split into {@link #BUCKETS_PER_DOUBLING} buckets, up to {@link #DOUBLINGS}
+ * doublings (about 12 days), and longer durations share the last bucket.
+ * Exact count, sum and maximum are kept along.
+ * @author guidanoli
+ * @see DurationStatistics
+ */
+public class DurationHistogram {
+
+	public static final int BUCKETS_PER_DOUBLING = 4;
+	public static final int DOUBLINGS = 20;
+	public static final int BUCKETS = BUCKETS_PER_DOUBLING * DOUBLINGS + 2;
+	
+	private static final double base = 1000; // first bucket upper bound, in milliseconds
+	private static final double log2 = Math.log(2);
+	
+	private final int [] buckets = new int[BUCKETS];
+	private long count = 0;
+	private long sum = 0;
+	private long max = 0;
+	
+	/**
+	 * Counts a duration
+	 * @param millis - duration in milliseconds ( >= 0 )
+	 */
+	public synchronized void add(long millis) {
+		if( millis < 0 ) return;
+		buckets[getBucket(millis)]++;
+		count++;
+		sum += millis;
+		max = Math.max(max, millis);
+	}
+	
+	/**
+	 * @return number of durations counted
+	 */
+	public synchronized long getCount() { return count; }
+	
+	/**
+	 * @return longest duration counted, in milliseconds, or 0 if there are none
+	 */
+	public synchronized long getMax() { return max; }
+	
+	/**
+	 * @return mean duration, in milliseconds, or 0 if there are none
+	 */
+	public synchronized long getMean() { return count == 0 ? 0 : sum / count; }
+	
+	/**
+	 * @return median duration, in milliseconds, or 0 if there are none
+	 */
+	public long getP50() { return getPercentile(50); }
+	
+	/**
+	 * @return 95th percentile of the durations, in milliseconds, or 0 if there are none
+	 */
+	public long getP95() { return getPercentile(95); }
+	
+	/**
+	 * Estimates a percentile by the middle of the bucket it falls into. Takes the same time
+	 * no matter how many durations have been counted.
+	 * @param percent - percentile, between 0 and 100
+	 * @return estimated duration, in milliseconds (never above the maximum), or 0 if there are none
+	 */
+	public synchronized long getPercentile(double percent) {
+		if( count == 0 ) return 0;
+		long rank = Math.max(1, (long) Math.ceil(count * percent / 100));
+		long cumulative = 0;
+		for( int i = 0 ; i < BUCKETS ; i++ ) {
+			cumulative += buckets[i];
+			if( cumulative >= rank ) return Math.min(max, getMiddle(i));
+		}
+		return max;
+	}
+	
+	/**
+	 * @param millis - duration in milliseconds
+	 * @return bucket index
+	 */
+	static int getBucket(long millis) {
+		if( millis < base ) return 0;
+		int i = 1 + (int) Math.floor(BUCKETS_PER_DOUBLING * Math.log(millis / base) / log2);
+		return Math.min(i, BUCKETS - 1);
+	}
+	
+	/**
+	 * @param i - bucket index
+	 * @return geometric middle of the bucket, in milliseconds
+	 */
+	static long getMiddle(int i) {
+		if( i == 0 ) return (long) ( base / 2 );
+		return (long) ( base * Math.pow(2, ( i - 0.5 ) / BUCKETS_PER_DOUBLING) );
+	}
+	
+	/**
+	 * Writes the histogram, with its non-empty buckets only
+	 * @param out - data output
+	 * @throws IOException if it could not be written
+	 */
+	synchronized void write(DataOutput out) throws IOException {
+		out.writeLong(count);
+		out.writeLong(sum);
+		out.writeLong(max);
+		int used = 0;
+		for( int n : buckets ) if( n > 0 ) used++;
+		out.writeShort(used);
+		for( int i = 0 ; i < BUCKETS ; i++ ) {
+			if( buckets[i] == 0 ) continue;
+			out.writeShort(i);
+			out.writeInt(buckets[i]);
+		}
+	}
+	
+	/**
+	 * Reads a histogram written by {@link #write(DataOutput)}
+	 * @param in - data input
+	 * @return histogram
+	 * @throws IOException if it could not be read
+	 */
+	static DurationHistogram read(DataInput in) throws IOException {
+		DurationHistogram h = new DurationHistogram();
+		h.count = in.readLong();
+		h.sum = in.readLong();
+		h.max = in.readLong();
+		int used = in.readShort();
+		for( int j = 0 ; j < used ; j++ ) {
+			int i = in.readShort();
+			int n = in.readInt();
+			if( i >= 0 && i < BUCKETS ) h.buckets[i] = n;
+		}
+		return h;
+	}
+	
+}
@@ -0,0 +1,272 @@
+package svn.stats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import svn.BinaryLaunchLog;
+import svn.LauncherLogManager;
+import vars.LocalResources;
+import vars.properties.GlobalProperties;
+
+/**
+ * <p>The <code>DurationStatistics</code> class keeps a {@link DurationHistogram} of the
+ * setup durations of each branch, and one of the make durations of each branch and make
+ * command, so that the percentiles of any of them can be queried at once, without reading
+ * the launch log.
+ * <p>Histograms are updated with every setup and make logged by {@link LauncherLogManager}.
+ * They are written behind, by a background thread, {@link #SAVE_DELAY} milliseconds after
+ * the first change, along with every other change made meanwhile, and right away by
+ * {@link #cleanUp()}, before the program exits. On first use, they are built from the launch
+ * log, assuming every make was run with the current make command, unless they can be loaded
+ * from the statistics file. Statistics are disposable: IO errors are printed, and a statistics
+ * file that cannot be read (e.g. corrupt, or of another version) is rebuilt from the log.
+ * <p>The statistics file is written as follows, in big-endian order:
+ * <p><code>magic (int), version (int), number of histograms (int)</code>
+ * <p>followed by, for each histogram:
+ * <p><code>action (byte), branch name (UTF), make command (UTF), histogram</code>
+ * <p>where the make command of setup histograms is empty.
+ * @author guidanoli
+ * @see LauncherLogManager#logMake(long, int)
+ * @see LauncherLogManager#logSetup(Long, Long, long)
+ */
+public class DurationStatistics {
+
+	/** Milliseconds between a change and the write, during which other changes are written along */
+	public static final int SAVE_DELAY = 30000;
+	
+	private static final String statsFile = LocalResources.durationstats;
+	private static final int MAGIC = 0x4A445354; // "JDST"
+	private static final int VERSION = 1;
+	private static DurationStatistics instance = null;
+	
+	private final Map<String, DurationHistogram> histograms = new ConcurrentHashMap<String, DurationHistogram>();
+	
+	/* Write-behind */
+	private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "duration-statistics-writer");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	private final Object writeLock = new Object();
+	private boolean dirty = false; // guarded by this
+	private boolean writeScheduled = false; // guarded by this
+	
+	private DurationStatistics() {}
+	
+	/**
+	 * @return duration statistics singleton, loaded (or built from the launch log) on first call
+	 */
+	public static synchronized DurationStatistics getInstance() {
+		if( instance != null ) return instance;
+		instance = new DurationStatistics();
+		if( !new File(statsFile).exists() || !instance.load() ) {
+			instance.histograms.clear(); // whatever was read before the error
+			instance.build();
+			instance.save();
+		}
+		return instance;
+	}
+	
+	/**
+	 * Writes the changes not written yet, if the statistics have been used at all.
+	 * Called before the program exits.
+	 */
+	public static synchronized void cleanUp() {
+		if( instance != null ) instance.write();
+	}
+	
+	/**
+	 * @param branchName - branch folder name
+	 * @return histogram of the setup durations of the branch or <code>null</code> if there are none
+	 */
+	public DurationHistogram getSetup(String branchName) {
+		return histograms.get(getKey(BinaryLaunchLog.SETUP, branchName, ""));
+	}
+	
+	/**
+	 * @param branchName - branch folder name
+	 * @param makeCommand - make command, as in the 'makecmd' property
+	 * @return histogram of the make durations of the branch with the make command
+	 * or <code>null</code> if there are none
+	 */
+	public DurationHistogram getMake(String branchName, String makeCommand) {
+		return histograms.get(getKey(BinaryLaunchLog.MAKE, branchName, makeCommand));
+	}
+	
+	/**
+	 * @return histograms of the setup durations of every branch, by branch name
+	 */
+	public Map<String, DurationHistogram> getSetups() {
+		return getAll(BinaryLaunchLog.SETUP, "");
+	}
+	
+	/**
+	 * @param makeCommand - make command, as in the 'makecmd' property
+	 * @return histograms of the make durations of every branch with the make command, by branch name
+	 */
+	public Map<String, DurationHistogram> getMakes(String makeCommand) {
+		return getAll(BinaryLaunchLog.MAKE, makeCommand);
+	}
+	
+	/**
+	 * Counts a setup duration and saves the statistics
+	 * @param branchName - branch folder name
+	 * @param millis - setup duration in milliseconds
+	 */
+	public void recordSetup(String branchName, long millis) {
+		getOrCreate(BinaryLaunchLog.SETUP, branchName, "").add(millis);
+		save();
+	}
+	
+	/**
+	 * Counts a make duration and saves the statistics
+	 * @param branchName - branch folder name
+	 * @param makeCommand - make command, as in the 'makecmd' property
+	 * @param millis - make duration in milliseconds
+	 */
+	public void recordMake(String branchName, String makeCommand, long millis) {
+		getOrCreate(BinaryLaunchLog.MAKE, branchName, makeCommand).add(millis);
+		save();
+	}
+	
+	private static String getKey(int action, String branchName, String makeCommand) {
+		return action + "\t" + branchName + "\t" + makeCommand;
+	}
+	
+	private Map<String, DurationHistogram> getAll(int action, String makeCommand) {
+		Map<String, DurationHistogram> all = new HashMap<String, DurationHistogram>();
+		for( Map.Entry<String, DurationHistogram> entry : histograms.entrySet() ) {
+			String [] key = entry.getKey().split("\t", 3);
+			if( key[0].equals(Integer.toString(action)) && key[2].equals(makeCommand) )
+				all.put(key[1], entry.getValue());
+		}
+		return all;
+	}
+	
+	private DurationHistogram getOrCreate(int action, String branchName, String makeCommand) {
+		String key = getKey(action, branchName, makeCommand);
+		DurationHistogram h = histograms.get(key);
+		if( h != null ) return h;
+		histograms.putIfAbsent(key, new DurationHistogram());
+		return histograms.get(key);
+	}
+	
+	/**
+	 * Builds the histograms from the launch log
+	 */
+	private void build() {
+		final String makeCommand = GlobalProperties.getInstance().get("makecmd");
+		try {
+			final BinaryLaunchLog log = LauncherLogManager.openLog();
+			log.scan(new BinaryLaunchLog.RecordVisitor() {
+				public void visit(int branchId, long timestamp, int action, long arg0, long arg1, long arg2) {
+					String branchName = log.getBranchName(branchId);
+					if( branchName == null ) return;
+					if( action == BinaryLaunchLog.MAKE && arg0 != BinaryLaunchLog.NONE )
+						getOrCreate(action, branchName, makeCommand).add(arg0);
+					else if( action == BinaryLaunchLog.SETUP && arg2 != BinaryLaunchLog.NONE )
+						getOrCreate(action, branchName, "").add(arg2);
+				}
+			});
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+		}
+	}
+	
+	/**
+	 * Loads statistics file
+	 * @return <code>false</code> if the file could not be read, or is not a statistics file of this version
+	 */
+	private boolean load() {
+		try( DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(statsFile))) ) {
+			if( in.readInt() != MAGIC || in.readInt() != VERSION ) return false;
+			int n = in.readInt();
+			for( int i = 0 ; i < n ; i++ ) {
+				int action = in.readByte();
+				String branchName = in.readUTF();
+				String makeCommand = in.readUTF();
+				histograms.put(getKey(action, branchName, makeCommand), DurationHistogram.read(in));
+			}
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace(System.err);
+			return false;
+		}
+	}
+	
+	/**
+	 * Schedules the statistics to be written in {@link #SAVE_DELAY} milliseconds, on a
+	 * background thread, unless a write is scheduled already
+	 */
+	private synchronized void save() {
+		dirty = true;
+		if( writeScheduled ) return;
+		writeScheduled = true;
+		writer.schedule(new Runnable() {
+			public void run() { write(); }
+		}, SAVE_DELAY, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Writes statistics file, if they have changed since the last write,
+	 * replacing the former one at once
+	 */
+	private void write() {
+		synchronized( writeLock ) {
+			synchronized( this ) {
+				writeScheduled = false;
+				if( !dirty ) return;
+				dirty = false;
+			}
+			writeFile();
+		}
+	}
+	
+	/**
+	 * Writes the histograms to a temporary file that then replaces the statistics file
+	 */
+	private void writeFile() {
+		new File(LocalResources.datafolder).mkdirs();
+		File temp = new File(statsFile + ".tmp");
+		try {
+			try( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp))) ) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				List<Map.Entry<String, DurationHistogram>> entries =
+						new ArrayList<Map.Entry<String, DurationHistogram>>(histograms.entrySet());
+				out.writeInt(entries.size());
+				for( Map.Entry<String, DurationHistogram> entry : entries ) {
+					String [] key = entry.getKey().split("\t", 3);
+					out.writeByte(Integer.parseInt(key[0]));
+					out.writeUTF(key[1]);
+					out.writeUTF(key[2]);
+					entry.getValue().write(out);
+				}
+			}
+			LocalResources.replace(temp, new File(statsFile));
+		} catch (IOException e) {
+			synchronized( this ) {
+				dirty = true; // retried by the next write
+			}
+			e.printStackTrace(System.err);
+		}
+	}
+	
+}
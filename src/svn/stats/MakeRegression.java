@@ -0,0 +1,80 @@
+package svn.stats;
+
+import svn.BinaryLaunchLog;
+
+/**
+ * <p>A compilation job that took much longer than the previous ones of the same branch,
+ * as detected by {@link RegressionDetector}. It carries the range of revisions the branch
+ * was set up to since the previous compilation, which is where the slowdown came from
+ * (unless it came from local modifications, in which case there is no range).
+ * @author guidanoli
+ * @see RegressionDetector
+ */
+public class MakeRegression {
+
+	private final String branchName;
+	private final long millis;
+	private final long baselineMillis;
+	private final long oldRevision;
+	private final long newRevision;
+	
+	/**
+	 * Constructs a make regression
+	 * @param branchName - branch folder name
+	 * @param millis - duration of the compilation job, in milliseconds
+	 * @param baselineMillis - usual duration of the compilation jobs of the branch, in milliseconds ( > 0 )
+	 * @param oldRevision - revision of the previous compilation or {@link BinaryLaunchLog#NONE}
+	 * @param newRevision - revision of this compilation or {@link BinaryLaunchLog#NONE}
+	 */
+	public MakeRegression(String branchName, long millis, long baselineMillis, long oldRevision, long newRevision) {
+		this.branchName = branchName;
+		this.millis = millis;
+		this.baselineMillis = baselineMillis;
+		this.oldRevision = oldRevision;
+		this.newRevision = newRevision;
+	}
+	
+	/**
+	 * @return branch folder name
+	 */
+	public String getBranchName() { return branchName; }
+	
+	/**
+	 * @return duration of the compilation job, in milliseconds
+	 */
+	public long getMillis() { return millis; }
+	
+	/**
+	 * @return usual duration of the compilation jobs of the branch, in milliseconds
+	 */
+	public long getBaselineMillis() { return baselineMillis; }
+	
+	/**
+	 * @return duration in relation to the usual duration, in percent
+	 */
+	public int getPercent() { return (int) ( millis * 100 / baselineMillis ); }
+	
+	/**
+	 * @return revision of the previous compilation or {@link BinaryLaunchLog#NONE} if the
+	 * branch has not been set up to another revision since
+	 */
+	public long getOldRevision() { return oldRevision; }
+	
+	/**
+	 * @return revision of this compilation or {@link BinaryLaunchLog#NONE} if the
+	 * branch has not been set up to another revision since the previous compilation
+	 */
+	public long getNewRevision() { return newRevision; }
+	
+	/**
+	 * @return <code>true</code> if the branch has been set up to another revision
+	 * since the previous compilation
+	 */
+	public boolean hasRevisionRange() { return oldRevision != BinaryLaunchLog.NONE && newRevision != BinaryLaunchLog.NONE; }
+	
+	public String toString() {
+		String range = hasRevisionRange() ? String.format("r%d-r%d", oldRevision, newRevision) : "local";
+		return String.format("%s %d%% (%d ms, usually %d ms) %s", branchName, getPercent(), millis, baselineMillis, range);
+	}
+	
+}
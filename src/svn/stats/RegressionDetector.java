@@ -0,0 +1,67 @@
+package svn.stats;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import svn.BinaryLaunchLog;
+import svn.LaunchLogQuery;
+import svn.LauncherLogManager;
+
+/**
+ * <p>The <code>RegressionDetector</code> checks whether a compilation job took much longer than
+ * the previous ones of the same branch. The baseline is the median duration of the last
+ * {@link #BASELINE_SIZE} compilation jobs of the branch in the launch log, so that it follows
+ * the branch as it grows. A job is a regression if it took longer than the baseline times
+ * the threshold, as set in the 'regression' property (in percent), unless the previous job
+ * did too, so that a slowdown is flagged once, by the job that introduced it.
+ * <p>Branches with less than {@link #MIN_BASELINE_SIZE} compilation jobs logged are never
+ * flagged. The revision range of a regression spans the setup jobs logged since the previous
+ * compilation job.
+ * @author guidanoli
+ * @see MakeRegression
+ * @see LauncherLogManager#logMake(long, int)
+ */
+public class RegressionDetector {
+
+	/** Number of most recent compilation jobs the baseline is made of */
+	public static final int BASELINE_SIZE = 10;
+	/** Minimum number of compilation jobs for a baseline */
+	public static final int MIN_BASELINE_SIZE = 3;
+	
+	private RegressionDetector() {}
+	
+	/**
+	 * Checks a compilation job against the previous ones. Should be called before the job is logged.
+	 * @param branchName - branch folder name
+	 * @param millis - duration of the compilation job, in milliseconds
+	 * @param thresholdPercent - duration in relation to the baseline above which the job is
+	 * a regression, in percent ( >= 100 )
+	 * @return regression or <code>null</code> if the job is not a regression
+	 * @throws IOException if the log could not be read
+	 */
+	public static MakeRegression check(String branchName, long millis, int thresholdPercent) throws IOException {
+		final long [] baseline = new long[BASELINE_SIZE];
+		final int [] size = { 0 };
+		final long [] range = { BinaryLaunchLog.NONE, BinaryLaunchLog.NONE }; // old, new revision
+		LauncherLogManager.openLog().query(new LaunchLogQuery().branch(branchName).newestFirst().limit(BASELINE_SIZE * 4),
+				new BinaryLaunchLog.RecordVisitor() {
+			public void visit(int branchId, long timestamp, int action, long arg0, long arg1, long arg2) {
+				if( size[0] >= BASELINE_SIZE ) return;
+				if( action == BinaryLaunchLog.MAKE && arg0 != BinaryLaunchLog.NONE ) {
+					baseline[size[0]++] = arg0;
+				} else if( action == BinaryLaunchLog.SETUP && size[0] == 0 ) {
+					if( range[1] == BinaryLaunchLog.NONE ) range[1] = arg1; // newest setup
+					range[0] = arg0; // oldest setup since the previous make, so far
+				}
+			}
+		});
+		if( size[0] < MIN_BASELINE_SIZE ) return null;
+		long [] sorted = Arrays.copyOf(baseline, size[0]);
+		Arrays.sort(sorted);
+		long median = Math.max(1, sorted[sorted.length / 2]);
+		if( millis * 100 <= median * thresholdPercent ) return null;
+		if( baseline[0] * 100 > median * thresholdPercent ) return null; // flagged already
+		return new MakeRegression(branchName, millis, median, range[0], range[1]);
+	}
+	
+}
@@ -0,0 +1,356 @@
+package svn.wc;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <p>The <code>SQLiteFile</code> class is a minimal read-only reader of SQLite 3 database
+ * files. It reads b-tree pages straight from the file and decodes records, and is only meant
+ * to look up a handful of rows, without any SQL engine. It does not take any lock and
+ * ignores journals, so callers should make sure that no one is writing the database.
+ * <p>Only UTF-8 databases are supported. Any other format, or any inconsistency found on
+ * the way, raises an {@link IOException}.
+ * @author guidanoli
+ * @see <a href="https://www.sqlite.org/fileformat.html">SQLite file format</a>
+ */
+class SQLiteFile implements Closeable {
+
+	private static final byte [] MAGIC = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+	private static final int HEADER_SIZE = 100;
+	private static final int MAX_DEPTH = 64;
+	
+	/* b-tree page types */
+	private static final int INTERIOR_INDEX = 2;
+	private static final int INTERIOR_TABLE = 5;
+	private static final int LEAF_INDEX = 10;
+	private static final int LEAF_TABLE = 13;
+	
+	private final FileChannel channel;
+	private final int pageSize;
+	private final int usableSize;
+	private final int userVersion;
+	private Map<String, Long> rootPages = null;
+	
+	/**
+	 * Opens a database file for reading
+	 * @param file - database file
+	 * @throws IOException if the file could not be read or is not a supported database
+	 */
+	SQLiteFile(File file) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			ByteBuffer header = read(0, HEADER_SIZE);
+			for( int i = 0 ; i < MAGIC.length ; i++ )
+				if( header.get(i) != MAGIC[i] ) throw new IOException("Not a SQLite 3 database");
+			int size = header.getShort(16) & 0xffff;
+			pageSize = size == 1 ? 65536 : size;
+			usableSize = pageSize - ( header.get(20) & 0xff );
+			if( header.getInt(56) != 1 ) throw new IOException("Unsupported text encoding");
+			userVersion = header.getInt(60);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * @return user version (<code>PRAGMA user_version</code>)
+	 */
+	int getUserVersion() { return userVersion; }
+	
+	/**
+	 * Gets the root page of a table or index, as listed by the schema table
+	 * @param name - table or index name (case insensitive)
+	 * @return root page number or <code>null</code> if there is no such table or index
+	 * @throws IOException on read errors
+	 */
+	Long getRootPage(String name) throws IOException {
+		if( rootPages == null ) {
+			final Map<String, Long> roots = new TreeMap<String, Long>(String.CASE_INSENSITIVE_ORDER);
+			scanTable(1, new RowVisitor() {
+				public void visit(long rowid, Object [] values) {
+					// type, name, tbl_name, rootpage, sql
+					if( values.length > 3 && values[1] instanceof String && values[3] instanceof Long )
+						roots.put((String) values[1], (Long) values[3]);
+				}
+			});
+			rootPages = roots;
+		}
+		return rootPages.get(name);
+	}
+	
+	/**
+	 * Visits every row of a table
+	 * @author guidanoli
+	 */
+	interface RowVisitor {
+		void visit(long rowid, Object [] values) throws IOException;
+	}
+	
+	/**
+	 * Visits every row of a table, in rowid order
+	 * @param root - table root page
+	 * @param visitor - row visitor
+	 * @throws IOException on read errors
+	 */
+	void scanTable(long root, RowVisitor visitor) throws IOException {
+		scanTable(root, visitor, 0);
+	}
+	
+	private void scanTable(long pageNumber, RowVisitor visitor, int depth) throws IOException {
+		if( depth > MAX_DEPTH ) throw new IOException("B-tree too deep");
+		ByteBuffer page = readPage(pageNumber);
+		int header = headerOffset(pageNumber);
+		int type = page.get(header);
+		int cells = page.getShort(header + 3) & 0xffff;
+		if( type == LEAF_TABLE ) {
+			for( int i = 0 ; i < cells ; i++ ) {
+				Cursor c = new Cursor(page, cellOffset(page, header, 8, i));
+				long payloadSize = c.readVarint();
+				long rowid = c.readVarint();
+				visitor.visit(rowid, decodeRecord(readPayload(page, c.pos, payloadSize, false)));
+			}
+		} else if( type == INTERIOR_TABLE ) {
+			for( int i = 0 ; i < cells ; i++ )
+				scanTable(page.getInt(cellOffset(page, header, 12, i)) & 0xffffffffL, visitor, depth + 1);
+			scanTable(page.getInt(header + 8) & 0xffffffffL, visitor, depth + 1);
+		} else {
+			throw new IOException("Not a table b-tree page");
+		}
+	}
+	
+	/**
+	 * Looks a row up by its rowid
+	 * @param root - table root page
+	 * @param rowid - row id
+	 * @return row values or <code>null</code> if there is no such row
+	 * @throws IOException on read errors
+	 */
+	Object [] findRow(long root, long rowid) throws IOException {
+		long pageNumber = root;
+		for( int depth = 0 ; depth <= MAX_DEPTH ; depth++ ) {
+			ByteBuffer page = readPage(pageNumber);
+			int header = headerOffset(pageNumber);
+			int type = page.get(header);
+			int cells = page.getShort(header + 3) & 0xffff;
+			if( type == LEAF_TABLE ) {
+				for( int i = 0 ; i < cells ; i++ ) {
+					Cursor c = new Cursor(page, cellOffset(page, header, 8, i));
+					long payloadSize = c.readVarint();
+					if( c.readVarint() == rowid )
+						return decodeRecord(readPayload(page, c.pos, payloadSize, false));
+				}
+				return null;
+			} else if( type == INTERIOR_TABLE ) {
+				// left child of the first cell whose key is not less than rowid
+				int low = 0, high = cells;
+				while( low < high ) {
+					int mid = ( low + high ) >>> 1;
+					Cursor c = new Cursor(page, cellOffset(page, header, 12, mid) + 4);
+					if( c.readVarint() < rowid ) low = mid + 1;
+					else high = mid;
+				}
+				if( low < cells ) pageNumber = page.getInt(cellOffset(page, header, 12, low)) & 0xffffffffL;
+				else pageNumber = page.getInt(header + 8) & 0xffffffffL;
+			} else {
+				throw new IOException("Not a table b-tree page");
+			}
+		}
+		throw new IOException("B-tree too deep");
+	}
+	
+	/**
+	 * Gets the smallest entry of an index
+	 * @param root - index root page
+	 * @return index entry values (the last one being the rowid) or
+	 * <code>null</code> if the index is empty
+	 * @throws IOException on read errors
+	 */
+	Object [] firstIndexEntry(long root) throws IOException {
+		long pageNumber = root;
+		for( int depth = 0 ; depth <= MAX_DEPTH ; depth++ ) {
+			ByteBuffer page = readPage(pageNumber);
+			int header = headerOffset(pageNumber);
+			int type = page.get(header);
+			int cells = page.getShort(header + 3) & 0xffff;
+			if( type == LEAF_INDEX ) {
+				if( cells == 0 ) return null;
+				Cursor c = new Cursor(page, cellOffset(page, header, 8, 0));
+				long payloadSize = c.readVarint();
+				return decodeRecord(readPayload(page, c.pos, payloadSize, true));
+			} else if( type == INTERIOR_INDEX ) {
+				if( cells > 0 ) pageNumber = page.getInt(cellOffset(page, header, 12, 0)) & 0xffffffffL;
+				else pageNumber = page.getInt(header + 8) & 0xffffffffL;
+			} else {
+				throw new IOException("Not an index b-tree page");
+			}
+		}
+		throw new IOException("B-tree too deep");
+	}
+	
+	/**
+	 * @param root - table or index root page
+	 * @return <code>true</code> if there are no rows or entries
+	 * @throws IOException on read errors
+	 */
+	boolean isEmpty(long root) throws IOException {
+		ByteBuffer page = readPage(root);
+		int header = headerOffset(root);
+		int type = page.get(header);
+		if( type == LEAF_TABLE || type == LEAF_INDEX ) return ( page.getShort(header + 3) & 0xffff ) == 0;
+		if( type == INTERIOR_TABLE || type == INTERIOR_INDEX ) return false;
+		throw new IOException("Not a b-tree page");
+	}
+	
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	/* *******
+	 * HELPERS
+	 * ******* */
+	
+	/**
+	 * The first page holds the database header before its b-tree header
+	 */
+	private static int headerOffset(long pageNumber) {
+		return pageNumber == 1 ? HEADER_SIZE : 0;
+	}
+	
+	private static int cellOffset(ByteBuffer page, int header, int headerSize, int i) {
+		return page.getShort(header + headerSize + 2 * i) & 0xffff;
+	}
+	
+	private ByteBuffer readPage(long pageNumber) throws IOException {
+		if( pageNumber < 1 ) throw new IOException("Invalid page number");
+		return read(( pageNumber - 1 ) * pageSize, pageSize);
+	}
+	
+	private ByteBuffer read(long position, int size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		while( buffer.hasRemaining() ) {
+			if( channel.read(buffer, position + buffer.position()) < 0 )
+				throw new IOException("Unexpected end of file");
+		}
+		buffer.flip();
+		return buffer;
+	}
+	
+	/**
+	 * Reads the payload of a cell, following its overflow pages
+	 * @param page - page of the cell
+	 * @param offset - offset of the payload in the page
+	 * @param size - payload size
+	 * @param index - if it is an index cell
+	 * @return payload
+	 */
+	private byte [] readPayload(ByteBuffer page, int offset, long size, boolean index) throws IOException {
+		if( size > Integer.MAX_VALUE ) throw new IOException("Payload too big");
+		int payloadSize = (int) size;
+		int maxLocal = index ? ( ( usableSize - 12 ) * 64 / 255 ) - 23 : usableSize - 35;
+		int minLocal = ( ( usableSize - 12 ) * 32 / 255 ) - 23;
+		int local = payloadSize;
+		if( payloadSize > maxLocal ) {
+			int k = minLocal + ( payloadSize - minLocal ) % ( usableSize - 4 );
+			local = k <= maxLocal ? k : minLocal;
+		}
+		byte [] payload = new byte[payloadSize];
+		ByteBuffer src = page.duplicate();
+		src.position(offset);
+		src.get(payload, 0, local);
+		int pos = local;
+		long next = local < payloadSize ? src.getInt() & 0xffffffffL : 0;
+		long pages = 0, pageCount = channel.size() / pageSize;
+		while( pos < payloadSize ) {
+			if( next == 0 || ++pages > pageCount ) throw new IOException("Broken overflow chain");
+			ByteBuffer overflow = readPage(next);
+			next = overflow.getInt(0) & 0xffffffffL;
+			int n = Math.min(usableSize - 4, payloadSize - pos);
+			overflow.position(4);
+			overflow.get(payload, pos, n);
+			pos += n;
+		}
+		return payload;
+	}
+	
+	/**
+	 * Decodes a record into its values: <code>null</code>, {@link Long}, {@link Double},
+	 * {@link String} or byte arrays
+	 * @param payload - record
+	 * @return record values
+	 */
+	static Object [] decodeRecord(byte [] payload) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(payload);
+		Cursor header = new Cursor(buffer, 0);
+		long headerSize = header.readVarint();
+		if( headerSize > payload.length ) throw new IOException("Malformed record");
+		List<Long> types = new ArrayList<Long>();
+		while( header.pos < headerSize ) types.add(header.readVarint());
+		Object [] values = new Object[types.size()];
+		int pos = (int) headerSize;
+		for( int i = 0 ; i < values.length ; i++ ) {
+			long type = types.get(i);
+			if( type == 0 ) {
+				values[i] = null;
+			} else if( type >= 1 && type <= 6 ) {
+				int [] sizes = { 0, 1, 2, 3, 4, 6, 8 };
+				int size = sizes[(int) type];
+				long value = buffer.get(pos); // sign extended
+				for( int j = 1 ; j < size ; j++ ) value = ( value << 8 ) | ( buffer.get(pos + j) & 0xff );
+				values[i] = value;
+				pos += size;
+			} else if( type == 7 ) {
+				values[i] = buffer.getDouble(pos);
+				pos += 8;
+			} else if( type == 8 || type == 9 ) {
+				values[i] = type - 8;
+			} else if( type >= 12 ) {
+				int size = (int) ( ( type - 12 ) / 2 );
+				if( pos + size > payload.length ) throw new IOException("Malformed record");
+				if( type % 2 == 0 ) {
+					byte [] blob = new byte[size];
+					System.arraycopy(payload, pos, blob, 0, size);
+					values[i] = blob;
+				} else {
+					values[i] = new String(payload, pos, size, StandardCharsets.UTF_8);
+				}
+				pos += size;
+			} else {
+				throw new IOException("Unknown serial type");
+			}
+		}
+		return values;
+	}
+	
+	/**
+	 * Reads varints from a buffer
+	 * @author guidanoli
+	 */
+	private static class Cursor {
+		private final ByteBuffer buffer;
+		int pos;
+		Cursor(ByteBuffer buffer, int pos) {
+			this.buffer = buffer;
+			this.pos = pos;
+		}
+		long readVarint() {
+			long value = 0;
+			for( int i = 0 ; i < 8 ; i++ ) {
+				int b = buffer.get(pos++) & 0xff;
+				value = ( value << 7 ) | ( b & 0x7f );
+				if( ( b & 0x80 ) == 0 ) return value;
+			}
+			return ( value << 8 ) | ( buffer.get(pos++) & 0xff );
+		}
+	}
+	
+}
@@ -0,0 +1,134 @@
+package svn.wc;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * <p>The <code>WorkingCopyMetadata</code> class reads what is known of a working copy root
+ * straight from its <code>.svn/wc.db</code> database, without spawning any SVN command:
+ * <ul>
+ * <li>base revision and last changed revision</li>
+ * <li>repository URL</li>
+ * <li>whether it is locked (the <code>WC_LOCK</code> table is not empty)</li>
+ * <li>whether it needs to be cleaned up (the <code>WORK_QUEUE</code> table is not empty)</li>
+ * </ul>
+ * <p>The root node is the smallest entry of the <code>NODES</code> primary key index, that
+ * is, the one with an empty relative path and no operation depth. Its row is then looked up by
+ * rowid.
+ * <p>Only the working copy formats from {@link #MIN_FORMAT} to {@link #MAX_FORMAT} (SVN 1.7
+ * onwards) are read. If the format is unknown, or if the database is being written (there is
+ * a journal or a write-ahead log), nothing is read and callers should fall back to the SVN
+ * command line.
+ * @author guidanoli
+ * @see SQLiteFile
+ */
+public class WorkingCopyMetadata {
+
+	/** Oldest working copy format supported (SVN 1.7) */
+	public static final int MIN_FORMAT = 29;
+	/** Newest working copy format supported */
+	public static final int MAX_FORMAT = 31;
+	
+	/* NODES columns */
+	private static final int NODES_LOCAL_RELPATH = 1;
+	private static final int NODES_OP_DEPTH = 2;
+	private static final int NODES_REPOS_ID = 4;
+	private static final int NODES_REPOS_PATH = 5;
+	private static final int NODES_REVISION = 6;
+	private static final int NODES_CHANGED_REVISION = 15;
+	
+	/* REPOSITORY columns */
+	private static final int REPOSITORY_ROOT = 1;
+	
+	private final long baseRevision;
+	private final long lastChangedRevision;
+	private final String url;
+	private final boolean locked;
+	private final boolean needsCleanup;
+	
+	private WorkingCopyMetadata(long baseRevision, long lastChangedRevision, String url,
+			boolean locked, boolean needsCleanup) {
+		this.baseRevision = baseRevision;
+		this.lastChangedRevision = lastChangedRevision;
+		this.url = url;
+		this.locked = locked;
+		this.needsCleanup = needsCleanup;
+	}
+	
+	/**
+	 * @return revision the working copy root was updated to
+	 */
+	public long getBaseRevision() { return baseRevision; }
+	
+	/**
+	 * @return last revision in which the working copy root was changed
+	 */
+	public long getLastChangedRevision() { return lastChangedRevision; }
+	
+	/**
+	 * @return repository URL of the working copy root or <code>null</code> if unknown
+	 */
+	public String getUrl() { return url; }
+	
+	/**
+	 * @return <code>true</code> if there is any working copy lock
+	 */
+	public boolean isLocked() { return locked; }
+	
+	/**
+	 * @return <code>true</code> if there is any pending work item, left by
+	 * an interrupted operation
+	 */
+	public boolean needsCleanup() { return needsCleanup; }
+	
+	/**
+	 * Reads the metadata of a working copy root
+	 * @param root - working copy root folder
+	 * @return metadata or <code>null</code> if it could not be read in-process
+	 * (not a working copy, unknown format, database being written or corrupt)
+	 */
+	public static WorkingCopyMetadata read(File root) {
+		File svnFolder = new File(root, ".svn");
+		File db = new File(svnFolder, "wc.db");
+		if( !db.isFile() ) return null;
+		if( new File(svnFolder, "wc.db-journal").exists() ) return null;
+		if( new File(svnFolder, "wc.db-wal").length() > 0 ) return null;
+		try( SQLiteFile file = new SQLiteFile(db) ) {
+			int format = file.getUserVersion();
+			if( format < MIN_FORMAT || format > MAX_FORMAT ) return null;
+			Long nodes = file.getRootPage("NODES");
+			Long nodesIndex = file.getRootPage("sqlite_autoindex_NODES_1");
+			Long repositories = file.getRootPage("REPOSITORY");
+			Long locks = file.getRootPage("WC_LOCK");
+			Long workQueue = file.getRootPage("WORK_QUEUE");
+			if( nodes == null || nodesIndex == null || repositories == null || locks == null || workQueue == null )
+				return null;
+			// (wc_id, local_relpath, op_depth, rowid)
+			Object [] entry = file.firstIndexEntry(nodesIndex);
+			if( entry == null || entry.length != 4 || !"".equals(entry[1]) || !Long.valueOf(0).equals(entry[2])
+					|| !(entry[3] instanceof Long) )
+				return null;
+			Object [] node = file.findRow(nodes, (Long) entry[3]);
+			if( node == null || node.length <= NODES_CHANGED_REVISION || !"".equals(node[NODES_LOCAL_RELPATH])
+					|| !Long.valueOf(0).equals(node[NODES_OP_DEPTH]) )
+				return null;
+			String url = null;
+			if( node[NODES_REPOS_ID] instanceof Long && node[NODES_REPOS_PATH] instanceof String ) {
+				Object [] repository = file.findRow(repositories, (Long) node[NODES_REPOS_ID]);
+				if( repository != null && repository.length > REPOSITORY_ROOT && repository[REPOSITORY_ROOT] instanceof String ) {
+					String path = (String) node[NODES_REPOS_PATH];
+					url = (String) repository[REPOSITORY_ROOT] + ( path.isEmpty() ? "" : "/" + path );
+				}
+			}
+			return new WorkingCopyMetadata(toRevision(node[NODES_REVISION]), toRevision(node[NODES_CHANGED_REVISION]),
+					url, !file.isEmpty(locks), !file.isEmpty(workQueue));
+		} catch (IOException | RuntimeException e) {
+			return null; // the command line will tell
+		}
+	}
+	
+	private static long toRevision(Object value) {
+		return value instanceof Long ? (Long) value : -1;
+	}
+	
+}
@@ -1,6 +1,11 @@
 package vars;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Local Resources store global data in one spot
@@ -16,6 +21,8 @@ public class LocalResources {
 	 * FOLDERS
 	 * ******* */
 	public static final String datafolder = System.getenv("userprofile") + "/.jabuti";
+	public static final String joblogfolder = datafolder + "/jobs";
+	public static final String launchfolder = datafolder + "/launch";
 	public static final String langfolder = "lang";
 	public static final String imgsfolder = "imgs";
 	
@@ -23,6 +30,13 @@ public class LocalResources {
 	 * INTERNAL DATA
 	 * ************* */
 	public static final String launchlog = datafolder+"/launch.log";
+	public static final String launchdata = datafolder+"/launch.dat";
+	public static final String launchdict = datafolder+"/launch.dict";
+	public static final String launchlock = datafolder+"/launch.lock";
+	public static final String concurrencylog = datafolder+"/concurrency.log";
+	public static final String fingerprints = datafolder+"/fingerprints.xml";
+	public static final String durationstats = datafolder+"/durations.dat";
+	public static final String joblogindex = joblogfolder+"/index.log";
 	public static final String properties = datafolder+"/properties.xml";
 	public static final String metalang = langfolder+"/_meta_.xml";
 	
@@ -51,4 +65,20 @@ public class LocalResources {
 		return LocalResources.class.getClassLoader().getResourceAsStream(path);
 	}
 	
+	/**
+	 * Replaces a file by another one written aside, at once if the file system allows it,
+	 * so that the file is never left half-written
+	 * @param temp - file written aside
+	 * @param file - file to be replaced
+	 * @throws IOException if the file could not be replaced
+	 */
+	public static void replace(File temp, File file) throws IOException
+	{
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
 }
@@ -1,10 +1,15 @@
 package vars.properties;
 import java.awt.Desktop;
+import java.awt.GraphicsEnvironment;
 import java.io.*;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.imageio.ImageIO;
 import javax.swing.Icon;
@@ -17,8 +22,13 @@ import gui.dialog.preferences.types.combo.*;
 import gui.dialog.preferences.types.mixed.FileSizePreferenceType;
 import gui.error.FatalError;
 import gui.error.LightError;
+import svn.BinaryLaunchLog;
 import svn.BranchManager;
+import svn.error.FatalOutputProperty;
 import svn.error.SetupErrorListener;
+import svn.process.JobLog;
+import svn.scheduler.ExecutionMode;
+import svn.scheduler.SchedulingPolicy;
 import vars.LocalResources;
 import vars.Metadata;
 import vars.Version;
@@ -35,6 +45,13 @@ import vars.properties.bool.NotificationProperty;
  * <li>and stored by the <b>save</b> function, very intuitively</li>
  * </ul>
  * 
+ * <p>Saving is written behind: {@link #save()} returns at once, and the properties changed
+ * since the last write are written by a background thread {@link #SAVE_DELAY} milliseconds
+ * later, so that a burst of changes is written once. The file is written aside and then
+ * renamed over the former one, so that it is never left half-written. {@link #flush()}
+ * writes pending changes right away, e.g. before the program exits, and is called by a
+ * shutdown hook as well, so that no exit path drops them.
+ * 
  * <p>{@link Property Properties} and their individual validation functions can be accessed
  * through their {@link PreferenceType} objects.
  * 
@@ -45,6 +62,9 @@ public class GlobalProperties extends Properties {
 
 	private static final long serialVersionUID = -6808146187988682780L;
 	
+	/** Milliseconds between a save request and the write, during which other requests are coalesced */
+	public static final int SAVE_DELAY = 500;
+	
 	/* Local Resources */
 	private static final String configFolder = vars.LocalResources.datafolder;
 	private static final String propertiesFile = vars.LocalResources.properties;
@@ -52,6 +72,7 @@ public class GlobalProperties extends Properties {
 	/* Properties */
 	public static NotificationProperty notificationProperty;
 	public static SetupErrorListener setupErrorsProperty;
+	public static FatalOutputProperty fatalOutputProperty;
 	
 	/**
 	 * The routine to add a new property is:
@@ -76,12 +97,23 @@ public class GlobalProperties extends Properties {
 			new EditableProperty( "path", getDefaultPath(), new DirectoryPreferenceType(), false ),
 			new EditableProperty( "lang", "English", new ComboPreferenceType(new LanguageCombo()), true ),
 			new EditableProperty( "maxthreads", "3", new NumberPreferenceType(1,10), false ),
+			new EditableProperty( "maxmakes", "2", new NumberPreferenceType(1,10), false ),
+			new EditableProperty( "makemode", "fixed", new ComboPreferenceType(new OptionsCombo("makemode", "fixed", "adaptive")), false ),
+			new EditableProperty( "execmode", ExecutionMode.POOL.getLabel(), new ComboPreferenceType(new OptionsCombo("execmode", ExecutionMode.getLabels())), false ),
+			new EditableProperty( "schedpolicy", SchedulingPolicy.FIFO.getLabel(), new ComboPreferenceType(new OptionsCombo("schedpolicy", SchedulingPolicy.getLabels())), false ),
 			new EditableProperty( "cleanups", "2", new NumberPreferenceType(1,10), false ),
 			new EditableProperty( "makecmd", "mlldamt", new ComboPreferenceType(new MakeCommandCombo()), false ),
+			new EditableProperty( "makeskip", "skip", new ComboPreferenceType(new OptionsCombo("makeskip", "skip", "force")), false ),
+			new EditableProperty( "regression", "150", new SliderPreferenceType(100,400,25,100), false ),
 			new EditableProperty( "notify", getDefaultNotifications(), new TogglePreferenceType(notificationProperty), false ),
 			new EditableProperty( "setup-err", getDefaultSetupErrors(), new TogglePreferenceType(setupErrorsProperty), false ),
+			new EditableProperty( "fatal", getDefaultFatalOutput(), new TogglePreferenceType(fatalOutputProperty), false ),
+			new EditableProperty( "tailsize", "64", new NumberPreferenceType(1,4096), false ),
+			new EditableProperty( "logcompression", JobLog.Compression.GZIP.getLabel(), new ComboPreferenceType(new OptionsCombo("logcompression", JobLog.Compression.getLabels())), false ),
+			new EditableProperty( "joblaunches", "30", new NumberPreferenceType(1,1000), false ),
 			new EditableProperty( "maxlogsize", "4194304", new MixedPreferenceType(new FileSizePreferenceType(1073741824)), false ),
 			new EditableProperty( "logreduction", "50", new SliderPreferenceType(10,90,5,20), false ),
+			new EditableProperty( "logsync", BinaryLaunchLog.SyncPolicy.BATCH.getLabel(), new ComboPreferenceType(new OptionsCombo("logsync", BinaryLaunchLog.SyncPolicy.getLabels())), false ),
 	};
 	
 	/* Singleton instance */
@@ -92,17 +124,36 @@ public class GlobalProperties extends Properties {
 	 */
 	public static GlobalProperties getInstance() { return INSTANCE; }
 	
+	/* Write-behind */
+	private final transient ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "properties-writer");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+	private final transient Object writeLock = new Object();
+	private boolean dirty = false; // guarded by this
+	private boolean writeScheduled = false; // guarded by this
+	private volatile boolean lastWriteOk = true;
+	
 	private GlobalProperties() {
 		for( Property prop : properties )
 			setProperty(prop.getKey(),prop.getDefaultValue());
-		try {
-			new File(configFolder).mkdirs();
-			if ( !new File(propertiesFile).createNewFile() )
-				loadFromXML(new FileInputStream(propertiesFile)); // if XML file is found, load it
-		} catch (Exception e) {
-			e.printStackTrace(System.out);
+		new File(configFolder).mkdirs();
+		File f = new File(propertiesFile);
+		if( f.exists() && f.length() > 0 ) {
+			try( InputStream is = new FileInputStream(f) ) {
+				loadFromXML(is); // if XML file is found, load it
+			} catch (Exception e) {
+				e.printStackTrace(System.out);
+			}
 		}
 		validateProperties();
+		// registered once the user has agreed to update the files, if asked to
+		Runtime.getRuntime().addShutdownHook(new Thread("properties-shutdown") {
+			public void run() { flush(); }
+		});
 		save();
 	}
 	
@@ -125,29 +176,36 @@ public class GlobalProperties extends Properties {
 			String messageStr = earlier ? "Your software needs to be updated.\nYou can either update your copy of Jabuti or close program." :
 				"Some configuration files need to be updated.\nYou can either update them or close the program\nnot to damage any internal data.";
 			String titleStr = "Jabuti";
-			String [] options = {earlier ? "Update software" : "Update files", "Close program"};
-			Icon icon = null;
-			try {
-				icon = new ImageIcon(ImageIO.read(LocalResources.getStream(LocalResources.icon_bw)));
-			} catch (IOException e) {
-				FatalError.show(e);
+			if( GraphicsEnvironment.isHeadless() ) {
+				// there is no one to ask, so files are updated unless the software is outdated
+				System.err.println(messageStr);
+				if( earlier ) System.exit(1);
 			}
-			int choice = JOptionPane.showOptionDialog(null, messageStr, titleStr,
-						JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE,
-						icon, options, options[0]);
-			if( choice == JOptionPane.CLOSED_OPTION || choice == 1 ) {
-				System.exit(0);
-			}
-			else if( earlier ) {
-				if (Desktop.isDesktopSupported() && Desktop.getDesktop().isSupported(Desktop.Action.BROWSE)) {
-				    try {
-				    	String repositoryURL = Metadata.getInstance().getProperty("repository");
-				    	if( repositoryURL != null ) Desktop.getDesktop().browse(new URI(repositoryURL));
-					} catch (Exception e) {
-						FatalError.show(e);
+			else {
+				String [] options = {earlier ? "Update software" : "Update files", "Close program"};
+				Icon icon = null;
+				try {
+					icon = new ImageIcon(ImageIO.read(LocalResources.getStream(LocalResources.icon_bw)));
+				} catch (IOException e) {
+					FatalError.show(e);
+				}
+				int choice = JOptionPane.showOptionDialog(null, messageStr, titleStr,
+							JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE,
+							icon, options, options[0]);
+				if( choice == JOptionPane.CLOSED_OPTION || choice == 1 ) {
+					System.exit(0);
+				}
+				else if( earlier ) {
+					if (Desktop.isDesktopSupported() && Desktop.getDesktop().isSupported(Desktop.Action.BROWSE)) {
+					    try {
+					    	String repositoryURL = Metadata.getInstance().getProperty("repository");
+					    	if( repositoryURL != null ) Desktop.getDesktop().browse(new URI(repositoryURL));
+						} catch (Exception e) {
+							FatalError.show(e);
+						}
 					}
+					System.exit(0);
 				}
-				System.exit(0);
 			}
 		}
 		ArrayList<EditableProperty> propList = getEditablePropertiesList();
@@ -220,23 +278,82 @@ public class GlobalProperties extends Properties {
 	 */
 	public void set(String key, String value) { setProperty(key, value); }
 	
+	public synchronized Object setProperty(String key, String value) {
+		Object old = super.setProperty(key, value);
+		if( !value.equals(old) ) dirty = true;
+		return old;
+	}
+	
+	public synchronized Object remove(Object key) {
+		Object old = super.remove(key);
+		if( old != null ) dirty = true;
+		return old;
+	}
+	
 	/**
-	 * Saves all changes to property object to a XML file in UTF-8 encoding
-	 * @return true if stored successfully
+	 * Schedules all changes to property object to be saved to a XML file in UTF-8 encoding,
+	 * in {@link #SAVE_DELAY} milliseconds, on a background thread. Does nothing if nothing
+	 * has changed since the last write.
+	 * @return false if the last write failed
+	 * @see #flush()
 	 */
 	public boolean save() {
-		try {
-			storeToXML(new FileOutputStream(propertiesFile), null, "UTF-8");
-			return true;
-		} catch (IOException e) {
-			FatalError.show(e,null,false);
-			return false;
+		synchronized( this ) {
+			if( dirty && !writeScheduled ) {
+				writeScheduled = true;
+				writer.schedule(new Runnable() {
+					public void run() { write(); }
+				}, SAVE_DELAY, TimeUnit.MILLISECONDS);
+			}
+		}
+		return lastWriteOk;
+	}
+	
+	/**
+	 * Saves all changes to property object right away, on the calling thread
+	 * @return true if stored successfully
+	 * @see #save()
+	 */
+	public boolean flush() {
+		return write();
+	}
+	
+	/**
+	 * Writes a snapshot of the properties, if they have changed since the last write,
+	 * to a temporary file that then replaces the XML file at once
+	 * @return true if stored successfully (or if there was nothing to store)
+	 */
+	private boolean write() {
+		synchronized( writeLock ) {
+			Properties snapshot = new Properties();
+			synchronized( this ) {
+				writeScheduled = false;
+				if( !dirty ) return lastWriteOk;
+				snapshot.putAll(this);
+				dirty = false;
+			}
+			File temp = new File(propertiesFile + ".tmp");
+			try {
+				try( OutputStream os = new FileOutputStream(temp) ) {
+					snapshot.storeToXML(os, null, "UTF-8");
+				}
+				LocalResources.replace(temp, new File(propertiesFile));
+				lastWriteOk = true;
+			} catch (IOException e) {
+				synchronized( this ) {
+					dirty = true; // retried by the next write
+				}
+				lastWriteOk = false;
+				FatalError.show(e,null,false);
+			}
+			return lastWriteOk;
 		}
 	}
 	
 	/**
 	 * Deletes unnecessary information stored within the XML file
-	 * For example: keys set to their default value are removed
+	 * For example: keys set to their default value are removed.
+	 * Changes are then written right away, since the program is about to exit.
 	 */
 	public void cleanUp() {
 		for(String key : stringPropertyNames()) {
@@ -248,7 +365,7 @@ public class GlobalProperties extends Properties {
 			if( removable ) remove(key);
 		}
 		// save difference
-		save();
+		flush();
 	}
 	
 	/**
@@ -311,4 +428,10 @@ public class GlobalProperties extends Properties {
 		return setupErrorsProperty.getDefaultPropertyValue();
 	}
 	
+	private static String getDefaultFatalOutput()
+	{
+		fatalOutputProperty = new FatalOutputProperty();
+		return fatalOutputProperty.getDefaultPropertyValue();
+	}
+	
 }